@@ -0,0 +1,114 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of the age of the interactions when their handler is about to run, that is the time since
+ * Discord created them (from their snowflake id), including the gateway latency and the time spent queued.
+ *
+ * <p>Bucket {@code 0} counts the ages under 1 ms, bucket {@code i} the ages in {@code [2^(i-1), 2^i)} ms, and the last
+ * bucket everything above.</p>
+ */
+public final class AgeHistogram {
+
+    public static final int BUCKETS = 18;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /* Getters & Setters */
+
+    public long getCount() {
+        long count = 0L;
+
+        for (int i = 0; i != BUCKETS; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    public long getBucket(int index) {
+        return buckets.get(index);
+    }
+
+    /**
+     * Returns the exclusive upper bound of a bucket in milliseconds, {@link Long#MAX_VALUE} for the last one.
+     */
+    public static long getUpperBound(int index) {
+        return index == BUCKETS - 1 ? Long.MAX_VALUE : 1L << index;
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile (from {@code 0} to {@code 100}), or {@code 0}
+     * if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        final long[] counts = new long[BUCKETS];
+        long count = 0L;
+
+        for (int i = 0; i != BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        if (count == 0L) {
+            return 0L;
+        }
+
+        final long rank = (long) Math.ceil(count * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        long seen = 0L;
+
+        for (int i = 0; i != BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(1L, rank)) {
+                return getUpperBound(i);
+            }
+        }
+        return getUpperBound(BUCKETS - 1);
+    }
+
+    /* Methods */
+
+    public void record(long age) {
+        final int index = age < 1L ? 0 : Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(age));
+
+        buckets.incrementAndGet(index);
+    }
+
+    public void reset() {
+        for (int i = 0; i != BUCKETS; i++) {
+            buckets.set(i, 0L);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("AgeHistogram{");
+
+        for (int i = 0; i != BUCKETS; i++) {
+            final long count = buckets.get(i);
+
+            if (count != 0L) {
+                sb.append(i == BUCKETS - 1 ? ">=" + (1L << (i - 1)) : "<" + getUpperBound(i)).append("ms=").append(count).append(' ');
+            }
+        }
+        return sb.append("p50=").append(getPercentile(50.0))
+            .append("ms p99=").append(getPercentile(99.0))
+            .append("ms}")
+            .toString();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The estimated memory retained by the structures of the library, as reported by {@link SlashClient#getFootprint()}.
+ *
+ * <p>Sizes are estimated from the entry counts and the shapes of the structures, assuming a 64-bit JVM with compressed
+ * references. They are meant to compare configurations and data structures, not to replace a heap dump.</p>
+ */
+public final class Footprint {
+
+    private final List<Entry> entries;
+
+    /* Constructors */
+
+    public Footprint(List<Entry> entries) {
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /* Getters & Setters */
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public Entry getEntry(String name) {
+        for (Entry entry : entries) {
+            if (entry.name.equals(name)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    public long getBytes() {
+        long bytes = 0L;
+
+        for (Entry entry : entries) {
+            bytes += entry.bytes;
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+
+        for (Entry entry : entries) {
+            sb.append(entry).append('\n');
+        }
+        return sb.append(String.format("%-20s %12s %14d bytes", "total", "", getBytes())).toString();
+    }
+
+    /* Nested Classes */
+
+    public static final class Entry {
+
+        private final String name;
+        private final long count;
+        private final long bytes;
+
+        /* Constructors */
+
+        public Entry(String name, long count, long bytes) {
+            this.name = name;
+            this.count = count;
+            this.bytes = bytes;
+        }
+
+        /* Getters & Setters */
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /** The estimated bytes per entry, or {@code 0} if there is none. */
+        public long getBytesPerEntry() {
+            return count == 0 ? 0 : bytes / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s %12d entries %14d bytes (%d per entry)", name, count, bytes, getBytesPerEntry());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+public final class HandlerReport {
+
+    private final Type type;
+    private final String path;
+    private final Method method;
+    private final String threadName;
+    private final long duration;
+    private final StackTraceElement[] stackTrace;
+    private final Throwable throwable;
+
+    /* Constructors */
+
+    public HandlerReport(Type type, String path, Method method, String threadName, long duration, StackTraceElement[] stackTrace, Throwable throwable) {
+        this.type = type;
+        this.path = path;
+        this.method = method;
+        this.threadName = threadName;
+        this.duration = duration;
+        this.stackTrace = stackTrace;
+        this.throwable = throwable;
+    }
+
+    /* Getters & Setters */
+
+    public Type getType() {
+        return type;
+    }
+
+    /** The command path or the component tag the handler was invoked for. */
+    public String getPath() {
+        return path;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    /** The time spent in the handler when the report was emitted, in milliseconds. */
+    public long getDuration() {
+        return duration;
+    }
+
+    public long getDuration(TimeUnit unit) {
+        return unit.convert(duration, TimeUnit.MILLISECONDS);
+    }
+
+    /** The stack sample of the executing thread for {@link Type#SLOW} reports, the failure stack trace otherwise. */
+    public StackTraceElement[] getStackTrace() {
+        return stackTrace;
+    }
+
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    /* Methods */
+
+    @Override
+    public String toString() {
+        return "type=" + type +
+            " path=" + path +
+            " handler=" + method.getDeclaringClass().getSimpleName() + "#" + method.getName() +
+            " thread=" + threadName +
+            " duration=" + duration + "ms" +
+            (throwable != null ? " error=" + throwable : "");
+    }
+
+    /* Nested Classes */
+
+    public enum Type {
+        SLOW,
+        FAILURE
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A dispatched interaction, as written by an {@link InteractionRecorder}.
+ */
+public final class InteractionRecord {
+
+    private final Type type;
+    private final long time;
+    private final long interactionId;
+    private final long commandId;
+    private final long guildId;
+    private final long channelId;
+    private final long userId;
+    private final long messageId;
+    private final String path;
+    private final List<Option> options;
+    private final List<String> values;
+
+    /* Constructors */
+
+    public InteractionRecord(Type type, long time, long interactionId, long commandId, long guildId, long channelId, long userId, long messageId, String path, List<Option> options, List<String> values) {
+        this.type = type;
+        this.time = time;
+        this.interactionId = interactionId;
+        this.commandId = commandId;
+        this.guildId = guildId;
+        this.channelId = channelId;
+        this.userId = userId;
+        this.messageId = messageId;
+        this.path = path;
+        this.options = Collections.unmodifiableList(options);
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    /* Getters & Setters */
+
+    public Type getType() {
+        return type;
+    }
+
+    /** The time at which the interaction was dispatched, in nanoseconds since the epoch. */
+    public long getTime() {
+        return time;
+    }
+
+    public long getTime(TimeUnit unit) {
+        return unit.convert(time, TimeUnit.NANOSECONDS);
+    }
+
+    public long getInteractionId() {
+        return interactionId;
+    }
+
+    /** The id of the slash command, {@code 0} for components. */
+    public long getCommandId() {
+        return commandId;
+    }
+
+    /** The id of the guild, {@code 0} in private channels. */
+    public long getGuildId() {
+        return guildId;
+    }
+
+    public long getChannelId() {
+        return channelId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    /** The id of the message of the component, {@code 0} for slash commands. */
+    public long getMessageId() {
+        return messageId;
+    }
+
+    /** The command path of a slash command, the custom id of a component. */
+    public String getPath() {
+        return path;
+    }
+
+    /** The options of a slash command. */
+    public List<Option> getOptions() {
+        return options;
+    }
+
+    /** The selected values of a selection menu. */
+    public List<String> getValues() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "InteractionRecord{" +
+            "type=" + type +
+            ", time=" + time +
+            ", interactionId=" + interactionId +
+            ", path='" + path + '\'' +
+            ", options=" + options +
+            ", values=" + values +
+            '}';
+    }
+
+    /* Nested Classes */
+
+    public enum Type {
+        SLASH_COMMAND,
+        BUTTON,
+        SELECTION_MENU
+    }
+
+    public static final class Option {
+
+        private final String name;
+        private final int type;
+        private final String value;
+
+        /* Constructors */
+
+        public Option(String name, int type, String value) {
+            this.name = name;
+            this.type = type;
+            this.value = value;
+        }
+
+        /* Getters & Setters */
+
+        public String getName() {
+            return name;
+        }
+
+        /** The raw type of the option, see {@link net.dv8tion.jda.api.interactions.commands.OptionType#fromKey(int)}. */
+        public int getType() {
+            return type;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return name + '=' + value;
+        }
+    }
+}
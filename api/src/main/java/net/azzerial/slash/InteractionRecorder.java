@@ -0,0 +1,308 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash;
+
+import net.dv8tion.jda.api.events.interaction.GenericComponentInteractionCreateEvent;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import net.dv8tion.jda.api.events.interaction.SelectionMenuEvent;
+import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.internal.utils.Checks;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends the dispatched interactions to a binary log, to be fed back by an {@link InteractionReplayer}.
+ *
+ * <p>The log starts with the {@code SLRC} magic and a version byte, followed by records each prefixed by their length.
+ * Records are timestamped in nanoseconds since the epoch, so that the records appended by successive recorders keep a
+ * single timeline.
+ * Records are buffered in memory and written through a {@link FileChannel} once the buffer is full, on
+ * {@link #flush()} or on {@link #close()}.</p>
+ */
+public final class InteractionRecorder implements Closeable, Flushable {
+
+    static final int MAGIC = 0x534C5243;
+    static final byte VERSION = 2;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    // anchors the monotonic clock on the wall clock
+    private final long origin = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+    private boolean closed = false;
+
+    /* Constructors */
+
+    private InteractionRecorder(FileChannel channel) throws IOException {
+        this.channel = channel;
+        if (channel.size() == 0) {
+            buffer.putInt(MAGIC).put(VERSION);
+        }
+    }
+
+    /* Methods */
+
+    /**
+     * Opens a recorder appending to the given log, which is created if it does not exist.
+     */
+    public static InteractionRecorder open(Path path) throws IOException {
+        Checks.notNull(path, "Path");
+        if (Files.exists(path) && Files.size(path) != 0) {
+            checkHeader(path);
+        }
+        return new InteractionRecorder(FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND
+        ));
+    }
+
+    /**
+     * Reads back all the records of a log.
+     */
+    public static List<InteractionRecord> read(Path path) throws IOException {
+        Checks.notNull(path, "Path");
+        final List<InteractionRecord> records = new ArrayList<>();
+
+        try (
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE))
+        ) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not an interaction log, or of an unsupported version!");
+            }
+
+            byte[] bytes = new byte[1024];
+
+            while (true) {
+                final int length;
+
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length > bytes.length) {
+                    bytes = new byte[Integer.highestOneBit(length) << 1];
+                }
+                in.readFully(bytes, 0, length);
+                try {
+                    records.add(decode(ByteBuffer.wrap(bytes, 0, length)));
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    throw new IOException("Corrupted interaction record!", e);
+                }
+            }
+        }
+        return records;
+    }
+
+    public synchronized void record(GenericInteractionCreateEvent event) throws IOException {
+        Checks.notNull(event, "Event");
+        if (closed) {
+            throw new IOException("The recorder is closed!");
+        }
+
+        final ByteBuffer record = encode(event, origin + System.nanoTime());
+
+        if (buffer.remaining() < Integer.BYTES + record.remaining()) {
+            flushBuffer();
+            if (buffer.capacity() < Integer.BYTES + record.remaining()) {
+                this.buffer = ByteBuffer.allocate(Integer.BYTES + record.remaining());
+            }
+        }
+        buffer.putInt(record.remaining()).put(record);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (!closed) {
+            flushBuffer();
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            try {
+                flushBuffer();
+            } finally {
+                this.closed = true;
+                channel.close();
+            }
+        }
+    }
+
+    /* Internal */
+
+    // appending to a log of another version would make it unreadable
+    private static void checkHeader(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not an interaction log, or of an unsupported version!");
+            }
+        } catch (EOFException e) {
+            throw new IOException("Not an interaction log, or of an unsupported version!", e);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private ByteBuffer encode(GenericInteractionCreateEvent event, long time) {
+        final InteractionRecord.Type type;
+        final long commandId;
+        final long messageId;
+        final String path;
+        final List<OptionMapping> options;
+        final List<String> values;
+
+        if (event instanceof SlashCommandEvent) {
+            final SlashCommandEvent command = (SlashCommandEvent) event;
+
+            type = InteractionRecord.Type.SLASH_COMMAND;
+            commandId = command.getCommandIdLong();
+            messageId = 0L;
+            path = command.getCommandPath();
+            options = command.getOptions();
+            values = Collections.emptyList();
+        } else {
+            final GenericComponentInteractionCreateEvent component = (GenericComponentInteractionCreateEvent) event;
+
+            type = event instanceof SelectionMenuEvent ?
+                InteractionRecord.Type.SELECTION_MENU :
+                InteractionRecord.Type.BUTTON;
+            commandId = 0L;
+            messageId = component.getMessageIdLong();
+            path = component.getComponentId();
+            options = Collections.emptyList();
+            values = event instanceof SelectionMenuEvent && ((SelectionMenuEvent) event).getValues() != null ?
+                ((SelectionMenuEvent) event).getValues() :
+                Collections.<String>emptyList();
+        }
+
+        scratch.clear();
+        ensureRecordCapacity(1 + 7 * Long.BYTES);
+        scratch.put((byte) type.ordinal())
+            .putLong(time)
+            .putLong(event.getIdLong())
+            .putLong(commandId)
+            .putLong(event.getGuild() != null ? event.getGuild().getIdLong() : 0L)
+            .putLong(event.getChannel() != null ? event.getChannel().getIdLong() : 0L)
+            .putLong(event.getUser().getIdLong())
+            .putLong(messageId);
+        putString(path);
+        ensureRecordCapacity(2 * Short.BYTES);
+        scratch.putShort((short) options.size());
+        for (OptionMapping option : options) {
+            putString(option.getName());
+            ensureRecordCapacity(Short.BYTES);
+            scratch.putShort((short) option.getType().getKey());
+            putString(option.getAsString());
+        }
+        ensureRecordCapacity(Short.BYTES);
+        scratch.putShort((short) values.size());
+        for (String value : values) {
+            putString(value);
+        }
+        scratch.flip();
+        return scratch;
+    }
+
+    private void putString(String s) {
+        final byte[] bytes = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+
+        ensureRecordCapacity(Short.BYTES + bytes.length);
+        scratch.putShort((short) bytes.length).put(bytes);
+    }
+
+    private void ensureRecordCapacity(int size) {
+        if (scratch.remaining() < size) {
+            final ByteBuffer scratch = ByteBuffer.allocate(Math.max(this.scratch.capacity() << 1, this.scratch.position() + size));
+
+            this.scratch.flip();
+            scratch.put(this.scratch);
+            this.scratch = scratch;
+        }
+    }
+
+    private static InteractionRecord decode(ByteBuffer buffer) {
+        final int type = buffer.get();
+
+        if (type < 0 || type >= InteractionRecord.Type.values().length) {
+            throw new IllegalArgumentException("Unknown interaction type " + type);
+        }
+
+        final long time = buffer.getLong();
+        final long interactionId = buffer.getLong();
+        final long commandId = buffer.getLong();
+        final long guildId = buffer.getLong();
+        final long channelId = buffer.getLong();
+        final long userId = buffer.getLong();
+        final long messageId = buffer.getLong();
+        final String path = getString(buffer);
+        final int optionCount = Short.toUnsignedInt(buffer.getShort());
+        final List<InteractionRecord.Option> options = new ArrayList<>(optionCount);
+
+        for (int i = 0; i != optionCount; i++) {
+            final String name = getString(buffer);
+            final int optionType = buffer.getShort();
+
+            options.add(new InteractionRecord.Option(name, optionType, getString(buffer)));
+        }
+
+        final int valueCount = Short.toUnsignedInt(buffer.getShort());
+        final List<String> values = new ArrayList<>(valueCount);
+
+        for (int i = 0; i != valueCount; i++) {
+            values.add(getString(buffer));
+        }
+        return new InteractionRecord(
+            InteractionRecord.Type.values()[type],
+            time, interactionId, commandId, guildId, channelId, userId, messageId,
+            path, options, values
+        );
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        final byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash;
+
+import net.azzerial.slash.internal.InteractionListener;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import net.dv8tion.jda.internal.JDAImpl;
+import net.dv8tion.jda.internal.handle.SocketHandler;
+import net.dv8tion.jda.internal.requests.WebSocketClient;
+import net.dv8tion.jda.internal.utils.Checks;
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Feeds the interactions of a log written by an {@link InteractionRecorder} back through the dispatch of a client.
+ *
+ * <p>By default, the replay is a dry run which only resolves the handlers. With an event factory, the events it
+ * builds are dispatched to the handlers as live ones would be. When {@link #setStubbed(boolean) stubbed}, the records
+ * are turned back into raw interaction payloads handed to JDA, which builds and dispatches the events itself, and their
+ * responses are answered by the {@link #interceptor()} instead of Discord.</p>
+ */
+public final class InteractionReplayer {
+
+    private static final String INTERACTION_CREATE = "INTERACTION_CREATE";
+    private static final String TOKEN_PREFIX = "replay-";
+    private static final Pattern STUBBED_ROUTE = Pattern.compile(
+        ".*/(?:interactions|webhooks)/\\d+/" + TOKEN_PREFIX + "\\d+(?:/.*)?"
+    );
+    private static final int APPLICATION_COMMAND = 2;
+    private static final int MESSAGE_COMPONENT = 3;
+    private static final int BUTTON = 2;
+    private static final int SELECTION_MENU = 3;
+    private static final int SUB_COMMAND = 1;
+    private static final int SUB_COMMAND_GROUP = 2;
+    private static final int INTEGER = 4;
+    private static final int BOOLEAN = 5;
+    private static final int NUMBER = 10;
+    private static final int EPHEMERAL = 1 << 6;
+
+    private final JDAImpl jda;
+    private final InteractionListener listener;
+    private final AtomicLong stubbedResponses = new AtomicLong();
+    private Pacing pacing = Pacing.FAST;
+    private Function<InteractionRecord, ? extends GenericInteractionCreateEvent> eventFactory = null;
+    private boolean stubbed = false;
+
+    /* Constructors */
+
+    private InteractionReplayer(JDAImpl jda, InteractionListener listener) {
+        this.jda = jda;
+        this.listener = listener;
+    }
+
+    /* Getters & Setters */
+
+    public InteractionReplayer setPacing(Pacing pacing) {
+        Checks.notNull(pacing, "Pacing");
+        this.pacing = pacing;
+        return this;
+    }
+
+    public InteractionReplayer setEventFactory(Function<InteractionRecord, ? extends GenericInteractionCreateEvent> eventFactory) {
+        this.eventFactory = eventFactory;
+        return this;
+    }
+
+    /**
+     * Sets whether the records are replayed through JDA with stubbed responses, in which case the event factory is
+     * not used. The {@link #interceptor()} must be added to the HTTP client of JDA, and the guilds and channels of the
+     * records must be in its cache.
+     */
+    public InteractionReplayer setStubbed(boolean stubbed) {
+        this.stubbed = stubbed;
+        return this;
+    }
+
+    /** The number of requests of the replayed interactions answered by the {@link #interceptor()}. */
+    public long getStubbedResponses() {
+        return stubbedResponses.get();
+    }
+
+    /* Methods */
+
+    public static InteractionReplayer create(SlashClient client) {
+        Checks.notNull(client, "Client");
+        return new InteractionReplayer((JDAImpl) client.getJDA(), client.getListener());
+    }
+
+    /**
+     * Returns the interceptor to add to the HTTP client of JDA, which answers the interaction callbacks and webhook
+     * requests of the replayed interactions instead of sending them. Webhook requests are answered without a body.
+     */
+    public Interceptor interceptor() {
+        return chain -> {
+            final Request request = chain.request();
+
+            if (!STUBBED_ROUTE.matcher(request.url().encodedPath()).matches()) {
+                return chain.proceed(request);
+            }
+            stubbedResponses.incrementAndGet();
+            return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(204)
+                .message("No Content")
+                .body(ResponseBody.create(null, new byte[0]))
+                .build();
+        };
+    }
+
+    public Result replay(Path path) throws IOException {
+        return replay(InteractionRecorder.read(path));
+    }
+
+    public Result replay(List<InteractionRecord> records) {
+        Checks.notNull(records, "Records");
+        final SocketHandler handler = stubbed ? getHandler() : null;
+        final long start = System.nanoTime();
+        // the delays are replayed relative to the first record
+        final long offset = records.isEmpty() ? 0L : records.get(0).getTime();
+        int dispatched = 0;
+
+        for (InteractionRecord record : records) {
+            if (pacing == Pacing.ORIGINAL) {
+                final long delay = start + (record.getTime() - offset) - System.nanoTime();
+
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+            }
+
+            if (handler != null) {
+                if (listener.replay(record, null)) {
+                    handler.handle(jda.getResponseTotal(), DataObject.empty()
+                        .put("t", INTERACTION_CREATE)
+                        .put("d", toPayload(record)));
+                    dispatched++;
+                }
+                continue;
+            }
+
+            final GenericInteractionCreateEvent event = eventFactory == null ? null : eventFactory.apply(record);
+
+            if (listener.replay(record, event)) {
+                dispatched++;
+            }
+        }
+        return new Result(records.size(), dispatched, System.nanoTime() - start);
+    }
+
+    /* Internal */
+
+    private SocketHandler getHandler() {
+        final WebSocketClient client = jda.getClient();
+        final SocketHandler handler = client == null ? null : client.getHandlers().get(INTERACTION_CREATE);
+
+        if (handler == null) {
+            throw new IllegalStateException("JDA has no " + INTERACTION_CREATE + " handler!");
+        }
+        return handler;
+    }
+
+    private DataObject toPayload(InteractionRecord record) {
+        final String id = Long.toUnsignedString(record.getInteractionId());
+        final DataObject user = DataObject.empty()
+            .put("id", Long.toUnsignedString(record.getUserId()))
+            .put("username", "replay")
+            .put("discriminator", "0000")
+            .put("avatar", null)
+            .put("bot", false);
+        final DataObject payload = DataObject.empty()
+            .put("id", id)
+            .put("application_id", Long.toUnsignedString(jda.getSelfUser().getApplicationIdLong()))
+            .put("token", TOKEN_PREFIX + id)
+            .put("version", 1)
+            .put("channel_id", Long.toUnsignedString(record.getChannelId()));
+
+        if (record.getGuildId() != 0L) {
+            payload.put("guild_id", Long.toUnsignedString(record.getGuildId()))
+                .put("member", DataObject.empty()
+                    .put("user", user)
+                    .put("roles", DataArray.empty())
+                    .put("joined_at", Instant.ofEpochMilli(TimeUnit.NANOSECONDS.toMillis(record.getTime())).toString())
+                    .put("permissions", "0")
+                    .put("deaf", false)
+                    .put("mute", false));
+        } else {
+            payload.put("user", user);
+        }
+        if (record.getType() == InteractionRecord.Type.SLASH_COMMAND) {
+            return payload.put("type", APPLICATION_COMMAND).put("data", toCommandData(record));
+        }
+
+        final DataArray values = DataArray.empty();
+
+        for (String value : record.getValues()) {
+            values.add(value);
+        }
+        // an ephemeral message is not built by JDA, which only needs its id
+        return payload.put("type", MESSAGE_COMPONENT)
+            .put("message", DataObject.empty()
+                .put("id", Long.toUnsignedString(record.getMessageId()))
+                .put("flags", EPHEMERAL))
+            .put("data", DataObject.empty()
+                .put("custom_id", record.getPath())
+                .put("component_type", record.getType() == InteractionRecord.Type.SELECTION_MENU ? SELECTION_MENU : BUTTON)
+                .put("values", values));
+    }
+
+    private static DataObject toCommandData(InteractionRecord record) {
+        final String[] path = record.getPath().split("/");
+        DataArray options = DataArray.empty();
+
+        for (InteractionRecord.Option option : record.getOptions()) {
+            options.add(DataObject.empty()
+                .put("name", option.getName())
+                .put("type", option.getType())
+                .put("value", toValue(option)));
+        }
+        // nests the options back under the subcommand and its group
+        for (int i = path.length - 1; i != 0; i--) {
+            options = DataArray.empty().add(DataObject.empty()
+                .put("name", path[i])
+                .put("type", i == path.length - 1 ? SUB_COMMAND : SUB_COMMAND_GROUP)
+                .put("options", options));
+        }
+        return DataObject.empty()
+            .put("id", Long.toUnsignedString(record.getCommandId()))
+            .put("name", path[0])
+            .put("options", options);
+    }
+
+    private static Object toValue(InteractionRecord.Option option) {
+        switch (option.getType()) {
+        case INTEGER:
+            return Long.parseLong(option.getValue());
+        case BOOLEAN:
+            return Boolean.parseBoolean(option.getValue());
+        case NUMBER:
+            return Double.parseDouble(option.getValue());
+        default:
+            return option.getValue();
+        }
+    }
+
+    /* Nested Classes */
+
+    public enum Pacing {
+        /** The interactions are replayed back to back. */
+        FAST,
+        /** The interactions are replayed with the delays they were recorded with. */
+        ORIGINAL
+    }
+
+    public static final class Result {
+
+        private final int records;
+        private final int dispatched;
+        private final long elapsed;
+
+        /* Constructors */
+
+        private Result(int records, int dispatched, long elapsed) {
+            this.records = records;
+            this.dispatched = dispatched;
+            this.elapsed = elapsed;
+        }
+
+        /* Getters & Setters */
+
+        public int getRecords() {
+            return records;
+        }
+
+        /** The number of records of which the handler was found (and invoked, if events were built or stubbed). */
+        public int getDispatched() {
+            return dispatched;
+        }
+
+        public int getUnresolved() {
+            return records - dispatched;
+        }
+
+        public long getElapsed(TimeUnit unit) {
+            return unit.convert(elapsed, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return "records=" + records +
+                " dispatched=" + dispatched +
+                " unresolved=" + getUnresolved() +
+                " elapsed=" + getElapsed(TimeUnit.MILLISECONDS) + "ms";
+        }
+    }
+}
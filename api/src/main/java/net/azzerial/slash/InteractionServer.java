@@ -0,0 +1,405 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.azzerial.slash.internal.Ed25519Verifier;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import net.dv8tion.jda.internal.JDAImpl;
+import net.dv8tion.jda.internal.handle.SocketHandler;
+import net.dv8tion.jda.internal.requests.WebSocketClient;
+import net.dv8tion.jda.internal.utils.Checks;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Receives interactions from Discord over HTTP (the "Interactions Endpoint URL" of an application), as an alternative
+ * to receiving them from the gateway.
+ *
+ * <p>Each request has its Ed25519 signature verified, then is handed to JDA's {@code INTERACTION_CREATE} handler
+ * exactly as if it came from the gateway, so it goes through the same listener, command and component tables and
+ * handler pool. The initial response of the handler is sent back in the HTTP reply: the {@link #interceptor()} must
+ * be added to the HTTP client of JDA (see {@code JDABuilder#setHttpClientBuilder}), where it captures the interaction
+ * callbacks instead of sending them. A handler which does not answer within the timeout has its interaction deferred
+ * in the HTTP reply, and its late answer is turned into an edit of the original response, or into a followup message
+ * when a component interaction answers with a new message.</p>
+ *
+ * <p>Requests bigger than {@value #MAX_BODY_SIZE} bytes are refused before their signature is verified, and requests
+ * of which the signed timestamp is more than 5 minutes away from the local clock are refused as replays.</p>
+ *
+ * <p>Only the delivery of the interactions is replaced, not the gateway connection: the requests are handed to the
+ * socket handler of a logged in JDA instance, which builds the event entities from its cache. The JDA instance must
+ * thus be connected to the gateway, with the guilds the interactions come from in its cache, so every replica serving
+ * the endpoint still needs its own shard and cannot be a stateless HTTP-only process. File attachments in the initial
+ * response are not supported.</p>
+ */
+public final class InteractionServer implements Closeable {
+
+    public static final String DEFAULT_PATH = "/interactions";
+    public static final long DEFAULT_TIMEOUT = 2_500L;
+    public static final TimeUnit DEFAULT_TIMEOUT_UNIT = TimeUnit.MILLISECONDS;
+    public static final int MAX_BODY_SIZE = 64 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(SlashClient.class);
+    private static final String INTERACTION_CREATE = "INTERACTION_CREATE";
+    private static final Pattern CALLBACK_PATH = Pattern.compile("(.*/)interactions/(\\d+)/([^/]+)/callback");
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final int PING = 1;
+    private static final int APPLICATION_COMMAND = 2;
+    private static final int PONG = 1;
+    private static final int DEFERRED_CHANNEL_MESSAGE = 5;
+    private static final int DEFERRED_UPDATE_MESSAGE = 6;
+    private static final int CHANNEL_MESSAGE = 4;
+    private static final int UPDATE_MESSAGE = 7;
+    // interaction tokens are valid for 15 minutes
+    private static final long TOKEN_LIFETIME = TimeUnit.MINUTES.toMillis(15L);
+    // how far the signed timestamp of a request may be from the local clock
+    private static final long TIMESTAMP_TOLERANCE = TimeUnit.MINUTES.toSeconds(5L);
+
+    private final JDAImpl jda;
+    private final Ed25519Verifier verifier;
+    // initial responses awaited by an HTTP exchange, keyed by interaction id
+    private final Map<Long, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+    // interactions deferred in their HTTP reply, of which the late answer edits the original response
+    private final Map<Long, Deferred> deferred = new ConcurrentHashMap<>();
+    private String path = DEFAULT_PATH;
+    private long timeout = DEFAULT_TIMEOUT_UNIT.toMillis(DEFAULT_TIMEOUT);
+    private Executor executor = null;
+    private HttpServer server;
+
+    /* Constructors */
+
+    private InteractionServer(JDAImpl jda, Ed25519Verifier verifier) {
+        this.jda = jda;
+        this.verifier = verifier;
+    }
+
+    /* Getters & Setters */
+
+    public InetSocketAddress getAddress() {
+        return server == null ? null : server.getAddress();
+    }
+
+    public InteractionServer setPath(String path) {
+        Checks.notEmpty(path, "Path");
+        Checks.check(path.startsWith("/"), "Path must start with a '/'! Provided: %s", path);
+        this.path = path;
+        return this;
+    }
+
+    /**
+     * Sets how long a request waits for the initial response of its handler before the interaction is deferred.
+     * Discord expects the reply within 3 seconds.
+     */
+    public InteractionServer setTimeout(long timeout, TimeUnit unit) {
+        Checks.positive(timeout, "Timeout");
+        Checks.notNull(unit, "Unit");
+        this.timeout = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Sets the executor handling the requests, by default a cached thread pool. Requests block until their handler
+     * answers, so the executor must not be too small.
+     */
+    public InteractionServer setExecutor(Executor executor) {
+        Checks.notNull(executor, "Executor");
+        this.executor = executor;
+        return this;
+    }
+
+    /* Methods */
+
+    /**
+     * @param publicKey the hex-encoded public key of the application
+     */
+    public static InteractionServer create(JDA jda, String publicKey) {
+        Checks.notNull(jda, "JDA");
+        Checks.notEmpty(publicKey, "Public Key");
+        return new InteractionServer((JDAImpl) jda, new Ed25519Verifier(publicKey));
+    }
+
+    public synchronized InteractionServer start(InetSocketAddress address) throws IOException {
+        Checks.notNull(address, "Address");
+        Checks.check(server == null, "The server is already started!");
+        this.server = HttpServer.create(address, 0);
+        server.createContext(path, this::handle);
+        server.setExecutor(executor != null ? executor : Executors.newCachedThreadPool(r -> {
+            final Thread thread = new Thread(r, "InteractionServer");
+
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        return this;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    /**
+     * Returns the interceptor to add to the HTTP client of JDA, which captures the initial responses of the
+     * interactions received by this server.
+     */
+    public Interceptor interceptor() {
+        return chain -> {
+            final Request request = chain.request();
+            final Matcher matcher = "POST".equals(request.method()) && request.body() != null ?
+                CALLBACK_PATH.matcher(request.url().encodedPath()) :
+                null;
+
+            if (matcher == null || !matcher.matches() || !isJson(request.body())) {
+                return chain.proceed(request);
+            }
+
+            final long id = Long.parseUnsignedLong(matcher.group(2));
+            final CompletableFuture<byte[]> response = pending.get(id);
+            final byte[] body = readBody(request.body());
+
+            if (response != null && response.complete(body)) {
+                return noContent(request);
+            }
+
+            final Deferred deferral = deferred.get(id);
+
+            if (deferral == null) {
+                return chain.proceed(request);
+            }
+
+            final DataObject callback = DataObject.fromJson(body);
+            final int type = callback.getInt("type", 0);
+
+            if (type == DEFERRED_CHANNEL_MESSAGE || type == DEFERRED_UPDATE_MESSAGE) {
+                // already done in the HTTP reply
+                return noContent(request);
+            }
+            if (type != CHANNEL_MESSAGE && type != UPDATE_MESSAGE) {
+                return chain.proceed(request);
+            }
+
+            // a new message answering a component interaction must not replace the message of the component
+            final boolean followup = type == CHANNEL_MESSAGE && deferral.type == DEFERRED_UPDATE_MESSAGE;
+            final String webhook = matcher.group(1) + "webhooks/" + deferral.applicationId + "/" + deferral.token;
+            final HttpUrl url = request.url().newBuilder()
+                .encodedPath(followup ? webhook : webhook + "/messages/@original")
+                .build();
+            final RequestBody data = RequestBody.create(JSON, callback.getObject("data").toJson());
+            final Response answer = chain.proceed(followup ?
+                request.newBuilder().url(url).post(data).build() :
+                request.newBuilder().url(url).patch(data).build());
+
+            if (!answer.isSuccessful()) {
+                return answer;
+            }
+            answer.close();
+            return noContent(request);
+        };
+    }
+
+    /* Internal */
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, null);
+                return;
+            }
+
+            final byte[] body = readAll(exchange.getRequestBody(), MAX_BODY_SIZE);
+
+            if (body == null) {
+                respond(exchange, 413, null);
+                return;
+            }
+
+            final String signature = exchange.getRequestHeaders().getFirst("X-Signature-Ed25519");
+            final String timestamp = exchange.getRequestHeaders().getFirst("X-Signature-Timestamp");
+
+            if (!isFresh(timestamp) || !verifier.verify(signature, timestamp, body)) {
+                respond(exchange, 401, "invalid request signature".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            final DataObject payload = DataObject.fromJson(body);
+
+            if (payload.getInt("type", 0) == PING) {
+                respond(exchange, 200, DataObject.empty().put("type", PONG).toJson());
+                return;
+            }
+            respond(exchange, 200, dispatch(payload));
+        } catch (RuntimeException e) {
+            logger.error("Could not handle an HTTP interaction", e);
+            respond(exchange, 500, null);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private byte[] dispatch(DataObject payload) {
+        final WebSocketClient client = jda.getClient();
+        final SocketHandler handler = client == null ? null : client.getHandlers().get(INTERACTION_CREATE);
+
+        if (handler == null) {
+            throw new IllegalStateException("JDA has no " + INTERACTION_CREATE + " handler, it must be connected to the gateway!");
+        }
+
+        final long id = payload.getUnsignedLong("id");
+        final CompletableFuture<byte[]> response = new CompletableFuture<>();
+
+        pending.put(id, response);
+        try {
+            handler.handle(jda.getResponseTotal(), DataObject.empty().put("t", INTERACTION_CREATE).put("d", payload));
+            try {
+                return response.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // registered before giving up on the response, so that an answer racing with the timeout is not lost
+                purgeDeferred();
+                final int type = payload.getInt("type") == APPLICATION_COMMAND ? DEFERRED_CHANNEL_MESSAGE : DEFERRED_UPDATE_MESSAGE;
+
+                deferred.put(id, new Deferred(payload.getString("application_id"), payload.getString("token"), type));
+                if (!response.complete(null)) {
+                    deferred.remove(id);
+                    return response.join();
+                }
+                return DataObject.empty()
+                    .put("type", type)
+                    .toJson();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        } finally {
+            pending.remove(id);
+        }
+    }
+
+    private void purgeDeferred() {
+        final long now = System.currentTimeMillis();
+
+        deferred.values().removeIf(deferral -> now - deferral.time > TOKEN_LIFETIME);
+    }
+
+    private static void respond(HttpExchange exchange, int code, byte[] body) throws IOException {
+        if (body != null && code == 200) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+        }
+        exchange.sendResponseHeaders(code, body == null ? -1 : body.length);
+        if (body != null) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static boolean isFresh(String timestamp) {
+        if (timestamp == null) {
+            return false;
+        }
+        try {
+            final long seconds = Long.parseLong(timestamp);
+            return Math.abs(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - seconds) <= TIMESTAMP_TOLERANCE;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // returns null if the stream holds more than the given number of bytes
+    private static byte[] readAll(InputStream in, int limit) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buf = new byte[4096];
+        int n;
+
+        while ((n = in.read(buf)) != -1) {
+            if (out.size() + n > limit) {
+                return null;
+            }
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isJson(RequestBody body) {
+        final MediaType type = body.contentType();
+        return type == null || "json".equals(type.subtype());
+    }
+
+    private static byte[] readBody(RequestBody body) throws IOException {
+        final Buffer buffer = new Buffer();
+
+        body.writeTo(buffer);
+        return buffer.readByteArray();
+    }
+
+    private static Response noContent(Request request) {
+        return new Response.Builder()
+            .request(request)
+            .protocol(Protocol.HTTP_1_1)
+            .code(204)
+            .message("No Content")
+            .body(ResponseBody.create(null, new byte[0]))
+            .build();
+    }
+
+    /* Nested Classes */
+
+    private static final class Deferred {
+
+        private final String applicationId;
+        private final String token;
+        // the response type the interaction was deferred with
+        private final int type;
+        private final long time = System.currentTimeMillis();
+
+        /* Constructors */
+
+        private Deferred(String applicationId, String token, int type) {
+            this.applicationId = applicationId;
+            this.token = token;
+            this.type = type;
+        }
+    }
+}
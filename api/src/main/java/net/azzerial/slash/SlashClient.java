@@ -16,39 +16,253 @@
 
 package net.azzerial.slash;
 
+import net.azzerial.slash.internal.ClientContext;
 import net.azzerial.slash.internal.CommandRegistry;
+import net.azzerial.slash.internal.Dispatcher;
+import net.azzerial.slash.internal.WarmUp;
 import net.azzerial.slash.internal.InteractionListener;
+import net.azzerial.slash.util.Session;
 import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.internal.utils.Checks;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 public final class SlashClient {
 
     private final JDA jda;
+    private final ClientContext context;
     private final CommandRegistry registry;
-    private final EventListener listener;
+    private final Dispatcher dispatcher;
+    private final InteractionListener listener;
+    private final CompletableFuture<Duration> warmUp;
+    private final AtomicBoolean shutdown = new AtomicBoolean();
 
     /* Constructors */
 
-    SlashClient(JDA jda, CommandRegistry registry) {
+    SlashClient(JDA jda, ClientContext context, CommandRegistry registry, Dispatcher dispatcher, EnumSet<Flag> flags, long duplicateWindow, int warmUpIterations) {
         this.jda = jda;
+        this.context = context;
         this.registry = registry;
-        this.listener = new InteractionListener(registry);
+        this.dispatcher = dispatcher;
+        this.listener = new InteractionListener(
+            registry,
+            dispatcher,
+            duplicateWindow,
+            flags.contains(Flag.SUPPRESS_REPEATED_CLICKS)
+        );
 
+        context.getComponentRegistry().setSpilling(flags.contains(Flag.SPILL_OVERSIZED_DATA));
         jda.addEventListener(listener);
+        this.warmUp = warmUpIterations == 0 ?
+            CompletableFuture.completedFuture(Duration.ZERO) :
+            WarmUp.start(registry, dispatcher, warmUpIterations);
+    }
+
+    /* Getters & Setters */
+
+    JDA getJDA() {
+        return jda;
+    }
+
+    InteractionListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Returns the store of the sessions created by the handlers of this client.
+     */
+    public Session.Store getSessionStore() {
+        return context.getSessionStore();
+    }
+
+    /**
+     * Attaches a recorder to which every dispatched interaction is appended, or detaches it if {@code null}. The
+     * recorder is not closed when detached.
+     */
+    public void setRecorder(InteractionRecorder recorder) {
+        listener.setRecorder(recorder);
+    }
+
+    /**
+     * Returns the distribution of the age of the interactions when their handler was about to run.
+     *
+     * @see SlashClientBuilder#setDeadline(long, java.util.concurrent.TimeUnit)
+     */
+    public AgeHistogram getInteractionAges() {
+        return dispatcher.getAges();
+    }
+
+    /**
+     * Returns the warm-up of the handlers, which completes with the time it took, {@link Duration#ZERO} if it is
+     * disabled.
+     *
+     * @see SlashClientBuilder#setWarmUp(int)
+     */
+    public CompletableFuture<Duration> getWarmUp() {
+        return warmUp;
+    }
+
+    /**
+     * Returns the number of interactions shed because they were older than the deadline.
+     */
+    public long getShedCount() {
+        return dispatcher.getShedCount();
+    }
+
+    /**
+     * Estimates the memory retained by the commands, the components, the spilled data and the sessions of this client.
+     *
+     * @see Footprint
+     */
+    public Footprint getFootprint() {
+        final List<Footprint.Entry> entries = new ArrayList<>(registry.getFootprint());
+
+        entries.addAll(context.getComponentRegistry().getFootprint());
+        entries.addAll(context.getSessionStore().getFootprint());
+        entries.add(context.getSpillStore().getFootprint());
+        return new Footprint(entries);
     }
 
     /* Methods */
 
+    /**
+     * Runs an action with this client as the current client, so that the components it renders and the sessions it
+     * creates belong to this client. Handlers always run with their own client as the current one, this is only needed
+     * to render components or use sessions from elsewhere, e.g. from a scheduled task.
+     */
+    public void runInContext(Runnable action) {
+        Checks.notNull(action, "Action");
+        context.run(action);
+    }
+
+    /**
+     * @see #runInContext(Runnable)
+     */
+    public <T> T callInContext(Supplier<T> action) {
+        Checks.notNull(action, "Action");
+        return context.call(action);
+    }
+
     public SlashCommand getCommand(String tag) {
         return registry.getCommand(tag);
     }
 
+    /**
+     * Registers a command on the live client, or hot-swaps the command registered under the same tag. A new command is
+     * upserted globally, a replacing one in the scopes of the command it replaces.
+     */
+    public SlashCommand registerCommand(Object command) {
+        return registerCommand(command, new long[0]);
+    }
+
+    /**
+     * Registers a command on the live client, or hot-swaps the command registered under the same tag, and upserts it
+     * in the given guilds only. The replaced command is deleted from the scopes it is not upserted to anymore.
+     */
+    public SlashCommand registerCommand(Object command, long... guildIds) {
+        Checks.notNull(command, "Command");
+        Checks.notNull(guildIds, "Guild ids");
+        final SlashCommand slashCommand = registry.compileCommand(command);
+        final SlashCommand replaced = registry.putCommand(slashCommand);
+
+        syncCommand(slashCommand, replaced, guildIds);
+        return slashCommand;
+    }
+
+    public SlashCommand unregisterCommand(String tag) {
+        Checks.notEmpty(tag, "Tag");
+        final SlashCommand command = registry.unregisterCommand(tag);
+
+        if (command != null) {
+            command.deleteAll();
+        }
+        return command;
+    }
+
+    /**
+     * Detaches this client from JDA and releases its context: its commands and components are unregistered locally
+     * (the commands are not deleted from Discord) and its live sessions are dropped without firing their expiry action.
+     * The handler pool is left running.
+     */
+    public void shutdown() {
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
+        }
+        jda.removeEventListener(listener);
+        for (SlashCommand command : registry.getCommands()) {
+            registry.unregisterCommand(command.getTag());
+        }
+        dispatcher.shutdown();
+        context.release();
+    }
+
+    /* Internal */
+
+    private void syncCommand(SlashCommand command, SlashCommand replaced, long[] guildIds) {
+        final Set<Long> scopes = new LinkedHashSet<>();
+
+        if (guildIds.length != 0) {
+            for (long guildId : guildIds) {
+                scopes.add(guildId);
+            }
+        } else if (replaced != null && !replaced.getScopes().isEmpty()) {
+            scopes.addAll(replaced.getScopes());
+        } else {
+            scopes.add(SlashCommand.GLOBAL);
+        }
+        if (replaced != null) {
+            final boolean renamed = !replaced.getData().getName().equals(command.getData().getName());
+
+            for (long scope : replaced.getScopes()) {
+                if (renamed || !scopes.contains(scope)) {
+                    deleteCommand(replaced, scope);
+                } else {
+                    // keeps resolving the interactions of the scope until the upsert returns
+                    command.putCommand(scope, replaced.getCommandId(scope));
+                }
+            }
+        }
+        // upserting by name creates the command or updates it in place, only the changed command is sent
+        for (long scope : scopes) {
+            if (scope == SlashCommand.GLOBAL) {
+                command.upsertGlobal();
+            } else if (jda.getGuildById(scope) != null) {
+                command.upsertGuild(scope);
+            }
+        }
+    }
+
+    private void deleteCommand(SlashCommand command, long scope) {
+        if (scope == SlashCommand.GLOBAL) {
+            command.deleteGlobal();
+        } else if (jda.getGuildById(scope) != null) {
+            command.deleteGuild(scope);
+        }
+    }
+
     /* Nested Classes */
 
     public enum Flag {
-        DELETE_UNREGISTERED_COMMANDS;
+        DELETE_UNREGISTERED_COMMANDS,
+        /**
+         * Drops the clicks of a same user on a same component of a same message which are repeated within the
+         * duplicate window.
+         */
+        SUPPRESS_REPEATED_CLICKS,
+        /**
+         * Moves the component data which does not fit in a custom id to a server-side store of this client, bounded by
+         * {@link SlashClientBuilder#setSpillBudget(long)}, leaving a short key in its place. {@link net.azzerial.slash.util.Buffer.Reader Buffer.Reader} and
+         * {@link net.azzerial.slash.util.Session Session} read such data back transparently.
+         */
+        SPILL_OVERSIZED_DATA;
 
         private final boolean isDefault;
 
@@ -17,26 +17,59 @@
 package net.azzerial.slash;
 
 import net.azzerial.slash.SlashClient.Flag;
+import net.azzerial.slash.annotations.Slash;
+import net.azzerial.slash.internal.ClientContext;
 import net.azzerial.slash.internal.CommandRegistry;
+import net.azzerial.slash.internal.Dispatcher;
+import net.azzerial.slash.internal.HandlerWatchdog;
+import net.azzerial.slash.internal.SpillStore;
 import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
 import net.dv8tion.jda.api.interactions.commands.Command;
 import net.dv8tion.jda.internal.utils.Checks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public final class SlashClientBuilder {
 
+    public static final long DEFAULT_DUPLICATE_WINDOW = 3_000L;
+    public static final TimeUnit DEFAULT_DUPLICATE_WINDOW_UNIT = TimeUnit.MILLISECONDS;
+    public static final long DEFAULT_SLOW_THRESHOLD = 1_000L;
+    public static final TimeUnit DEFAULT_SLOW_THRESHOLD_UNIT = TimeUnit.MILLISECONDS;
+    public static final long DEFAULT_STARVATION_THRESHOLD = 1_000L;
+    public static final TimeUnit DEFAULT_STARVATION_THRESHOLD_UNIT = TimeUnit.MILLISECONDS;
+    public static final long DEFAULT_SPILL_BUDGET = SpillStore.DEFAULT_BUDGET;
+
+    private static final Logger logger = LoggerFactory.getLogger(SlashClient.class);
+
     private final JDA jda;
-    private final CommandRegistry registry;
+    // the commands by tag, registered once the client is built
+    private final Map<String, Object> commands = new LinkedHashMap<>();
     private final EnumSet<Flag> flags;
+    private long duplicateWindow = DEFAULT_DUPLICATE_WINDOW_UNIT.toMillis(DEFAULT_DUPLICATE_WINDOW);
+    private long slowThreshold = DEFAULT_SLOW_THRESHOLD_UNIT.toMillis(DEFAULT_SLOW_THRESHOLD);
+    private Consumer<HandlerReport> reporter = SlashClientBuilder::logReport;
+    private byte[] signingKey = null;
+    private ExecutorService handlerPool = null;
+    private long deadline = 0L;
+    private Consumer<GenericInteractionCreateEvent> shedHandler = null;
+    private long starvationThreshold = DEFAULT_STARVATION_THRESHOLD_UNIT.toMillis(DEFAULT_STARVATION_THRESHOLD);
+    private int warmUpIterations = 0;
+    private long spillBudget = DEFAULT_SPILL_BUDGET;
 
     /* Constructors */
 
     private SlashClientBuilder(JDA jda) {
         this.jda = jda;
-        this.registry = new CommandRegistry(jda);
         this.flags = Flag.getDefault();
     }
 
@@ -49,7 +82,15 @@ public final class SlashClientBuilder {
 
     public SlashClientBuilder addCommand(Object command) {
         Checks.notNull(command, "Command");
-        registry.registerCommand(command);
+        final Slash.Tag tag = command.getClass().getAnnotation(Slash.Tag.class);
+
+        if (tag == null) {
+            throw new IllegalArgumentException("Provided " + command.getClass().getSimpleName() + ".class is not annotated with @Slash.Tag!");
+        }
+        if (commands.containsKey(tag.value())) {
+            throw new IllegalArgumentException("Tried to register " + command.getClass().getSimpleName() + ".class, but the '" + tag.value() + "' tag was already in use!");
+        }
+        commands.put(tag.value(), command);
         return this;
     }
 
@@ -71,17 +112,154 @@ public final class SlashClientBuilder {
         return this;
     }
 
+    public SlashClientBuilder setDuplicateWindow(long window, TimeUnit unit) {
+        Checks.notNegative(window, "Window");
+        Checks.notNull(unit, "Unit");
+        this.duplicateWindow = unit.toMillis(window);
+        return this;
+    }
+
+    public SlashClientBuilder setSlowThreshold(long threshold, TimeUnit unit) {
+        Checks.positive(threshold, "Threshold");
+        Checks.notNull(unit, "Unit");
+        this.slowThreshold = unit.toMillis(threshold);
+        return this;
+    }
+
+    public SlashClientBuilder setReportHandler(Consumer<HandlerReport> reporter) {
+        Checks.notNull(reporter, "Reporter");
+        this.reporter = reporter;
+        return this;
+    }
+
+    /**
+     * Sets the pool on which the handlers are run, instead of the event thread. The handlers then follow the
+     * {@link net.azzerial.slash.annotations.ExecutionOrder ExecutionOrder} and the
+     * {@link net.azzerial.slash.annotations.Priority Priority} of their annotation.
+     */
+    public SlashClientBuilder setHandlerPool(ExecutorService pool) {
+        Checks.notNull(pool, "Pool");
+        this.handlerPool = pool;
+        return this;
+    }
+
+    /**
+     * Sets the wait past which a handler queued on the handler pool runs first whatever its priority, or {@code 0} to
+     * strictly follow the weights of the priorities.
+     */
+    public SlashClientBuilder setStarvationThreshold(long threshold, TimeUnit unit) {
+        Checks.notNegative(threshold, "Threshold");
+        Checks.notNull(unit, "Unit");
+        this.starvationThreshold = unit.toMillis(threshold);
+        return this;
+    }
+
+    /**
+     * Sets the age past which an interaction is shed instead of handled, or {@code 0} to handle every interaction (the
+     * default). The age is measured from the creation time of the interaction when its handler is about to run, so an
+     * interaction left too long in the queue of the handler pool is dropped rather than answered after Discord gave up
+     * on it. Discord expects an acknowledgement within 3 seconds, {@code 2500} milliseconds leaves room for the reply.
+     *
+     * <p>The creation time comes from Discord's clock and the age is measured with the local one: a host clock ahead
+     * of Discord's by about the deadline sheds every interaction. Keep the host synchronized (NTP) and check
+     * {@link SlashClient#getInteractionAges()} before enabling it. With an {@link InteractionServer}, late answers are
+     * turned into edits of the deferred response, so a deadline is usually not wanted there.</p>
+     */
+    public SlashClientBuilder setDeadline(long deadline, TimeUnit unit) {
+        Checks.notNegative(deadline, "Deadline");
+        Checks.notNull(unit, "Unit");
+        this.deadline = unit.toMillis(deadline);
+        return this;
+    }
+
+    /**
+     * Sets the action run instead of the handler of a shed interaction, on the thread which would have run the handler.
+     * It should stay cheap, typically a log line or a cached ephemeral reply, since the interaction is already late.
+     */
+    public SlashClientBuilder setShedHandler(Consumer<GenericInteractionCreateEvent> handler) {
+        Checks.notNull(handler, "Handler");
+        this.shedHandler = handler;
+        return this;
+    }
+
+    /**
+     * Sets the number of warm-up iterations run in the background once the client is built, or {@code 0} to disable the
+     * warm-up. Each iteration resolves every command handler and component callback, and drives it through the dispatch
+     * path without calling it. A few thousand iterations are usually enough for the paths to be compiled.
+     *
+     * @see SlashClient#getWarmUp()
+     */
+    public SlashClientBuilder setWarmUp(int iterations) {
+        Checks.notNegative(iterations, "Iterations");
+        this.warmUpIterations = iterations;
+        return this;
+    }
+
+    /**
+     * Sets the approximate memory, in bytes, kept for the component data spilled out of the custom ids of this client
+     * (see {@link Flag#SPILL_OVERSIZED_DATA}). The least used data is dropped past it, and its components then fail to
+     * resolve.
+     */
+    public SlashClientBuilder setSpillBudget(long bytes) {
+        Checks.positive(bytes, "Bytes");
+        this.spillBudget = bytes;
+        return this;
+    }
+
+    /**
+     * Sets the key with which the component ids are signed. Signed ids can be verified by any client sharing the key,
+     * and are rejected before reaching their callback if they were tampered with or have expired.
+     */
+    public SlashClientBuilder setSigningKey(byte[] key) {
+        Checks.notNull(key, "Key");
+        Checks.check(key.length != 0, "Key may not be empty");
+        this.signingKey = key.clone();
+        return this;
+    }
+
+    /**
+     * Builds the client, which claims its context (see {@link SlashClient#shutdown()}) and registers its commands.
+     */
     public SlashClient build() {
         Checks.check(jda.getStatus() == JDA.Status.CONNECTED, "JDA is not JDA.Status.CONNECTED! Maybe you forgot to call JDA#awaitReady()?");
-        final Collection<SlashCommand> commands = registry.getCommands();
+        final ClientContext context = ClientContext.create();
+
+        try {
+            final CommandRegistry registry = new CommandRegistry(jda, context.getComponentRegistry());
 
-        loadGlobalCommands(commands);
-        loadGuildCommands(commands);
-        return new SlashClient(jda, registry);
+            for (Object command : commands.values()) {
+                registry.registerCommand(command);
+            }
+
+            final Collection<SlashCommand> commands = registry.getCommands();
+
+            loadGlobalCommands(commands);
+            loadGuildCommands(commands);
+
+            context.getComponentRegistry().setSigningKey(signingKey);
+            context.getSpillStore().setBudget(spillBudget);
+
+            final Dispatcher dispatcher = new Dispatcher(context, new HandlerWatchdog(slowThreshold, reporter), handlerPool, deadline, shedHandler, starvationThreshold);
+            return new SlashClient(jda, context, registry, dispatcher, flags, duplicateWindow, warmUpIterations);
+        } catch (RuntimeException e) {
+            context.release();
+            throw e;
+        }
     }
 
     /* Internal */
 
+    private static void logReport(HandlerReport report) {
+        if (report.getType() == HandlerReport.Type.SLOW) {
+            final Throwable sample = new Throwable("Stack sample of " + report.getThreadName());
+
+            sample.setStackTrace(report.getStackTrace());
+            logger.warn("Slow handler: {}", report, sample);
+        } else {
+            logger.error("Failed handler: {}", report, report.getThrowable());
+        }
+    }
+
     private void loadGlobalCommands(Collection<SlashCommand> commands) {
         final List<Command> cmds = jda.retrieveCommands().complete();
 
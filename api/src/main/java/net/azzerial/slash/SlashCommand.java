@@ -16,6 +16,8 @@
 
 package net.azzerial.slash;
 
+import net.azzerial.slash.internal.util.Footprints;
+import net.azzerial.slash.internal.util.LongLongMap;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.interactions.commands.Command;
@@ -25,12 +27,12 @@ import net.dv8tion.jda.api.requests.RestAction;
 import net.dv8tion.jda.internal.utils.Checks;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 public final class SlashCommand {
 
@@ -41,7 +43,8 @@ public final class SlashCommand {
     private final CommandData data;
     private final Object obj;
     private final Map<String, Method> handlers;
-    private final Map<Long, AtomicReference<Command>> instances = new HashMap<>();
+    // scope (GLOBAL or guild id) -> command id, the Command objects are only retrieved when needed
+    private final LongLongMap instances = new LongLongMap();
 
     /* Constructors */
 
@@ -68,28 +71,107 @@ public final class SlashCommand {
     }
 
     public List<Long> getCommandIds() {
-        return instances.values().stream()
-            .map(AtomicReference::get)
-            .map(Command::getIdLong)
+        return LongStream.of(instances.values())
+            .boxed()
             .collect(Collectors.toList());
     }
 
+    /**
+     * Returns the scopes (guild ids or {@link #GLOBAL}) in which this command has an id.
+     */
+    public List<Long> getScopes() {
+        final List<Long> scopes = new ArrayList<>();
+
+        instances.forEach((scope, id) -> scopes.add(scope));
+        return scopes;
+    }
+
+    public long getCommandId(long scope) {
+        return instances.get(scope);
+    }
+
+    public boolean hasCommandId(long id) {
+        return instances.containsValue(id);
+    }
+
+    public boolean hasCommandId(long scope, long id) {
+        return instances.get(scope) == id || instances.get(GLOBAL) == id;
+    }
+
     public Map<String, Method> getHandlers() {
         return handlers;
     }
 
-    public synchronized void putCommand(long id, Command command) {
-        instances.put(id, new AtomicReference<>(command));
+    /**
+     * Estimates the memory retained by the command ids of this command, one per scope it was upserted to.
+     */
+    public Footprint.Entry getFootprint() {
+        return new Footprint.Entry(
+            "command-instances",
+            instances.size(),
+            Footprints.object(3, 0) + Footprints.object(1, 0) + Footprints.array(instances.capacity() << 1, Long.BYTES)
+        );
+    }
+
+    public void putCommand(long id, Command command) {
+        Checks.notNull(command, "Command");
+        putCommand(id, command.getIdLong());
+    }
+
+    /**
+     * Records the id of this command in the given scope, a guild id or {@link #GLOBAL}, without retrieving it.
+     */
+    public void putCommand(long scope, long commandId) {
+        instances.put(scope, commandId);
     }
 
     /* Methods */
 
-    public synchronized SlashCommand deleteGlobal() {
-        if (instances.containsKey(GLOBAL)) {
-            final AtomicReference<Command> command = instances.get(GLOBAL);
+    public RestAction<Command> retrieveGlobalCommand() {
+        final long id = instances.get(GLOBAL);
+        return id != LongLongMap.NO_VALUE ?
+            jda.retrieveCommandById(id) :
+            null;
+    }
+
+    public RestAction<Command> retrieveGuildCommand(long id) {
+        return retrieveGuildCommand(jda.getGuildById(id));
+    }
+
+    public RestAction<Command> retrieveGuildCommand(String id) {
+        return retrieveGuildCommand(jda.getGuildById(id));
+    }
+
+    public RestAction<Command> retrieveGuildCommand(Guild guild) {
+        Checks.notNull(guild, "Guild");
+        final long id = instances.get(guild.getIdLong());
+        return id != LongLongMap.NO_VALUE ?
+            guild.retrieveCommandById(id) :
+            null;
+    }
+
+    public SlashCommand deleteAll() {
+        instances.forEach((scope, id) -> {
+            if (scope == GLOBAL) {
+                deleteGlobal();
+            } else {
+                final Guild guild = jda.getGuildById(scope);
+
+                if (guild != null) {
+                    deleteGuild(guild);
+                } else {
+                    instances.remove(scope);
+                }
+            }
+        });
+        return this;
+    }
+
+    public SlashCommand deleteGlobal() {
+        final long id = instances.remove(GLOBAL);
 
-            command.get().delete().queue();
-            instances.remove(GLOBAL);
+        if (id != LongLongMap.NO_VALUE) {
+            jda.deleteCommandById(id).queue();
         }
         return this;
     }
@@ -102,13 +184,12 @@ public final class SlashCommand {
         return deleteGuild(jda.getGuildById(id));
     }
 
-    public synchronized SlashCommand deleteGuild(Guild guild) {
+    public SlashCommand deleteGuild(Guild guild) {
         Checks.notNull(guild, "Guild");
-        if (instances.containsKey(guild.getIdLong())) {
-            final AtomicReference<Command> command = instances.get(guild.getIdLong());
+        final long id = instances.remove(guild.getIdLong());
 
-            command.get().delete().queue();
-            instances.remove(guild.getIdLong());
+        if (id != LongLongMap.NO_VALUE) {
+            guild.deleteCommandById(id).queue();
         }
         return this;
     }
@@ -121,10 +202,11 @@ public final class SlashCommand {
         return retrieveGlobalPrivileges(jda.getGuildById(id));
     }
 
-    public synchronized RestAction<List<CommandPrivilege>> retrieveGlobalPrivileges(Guild guild) {
+    public RestAction<List<CommandPrivilege>> retrieveGlobalPrivileges(Guild guild) {
         Checks.notNull(guild, "Guild");
-        return instances.containsKey(GLOBAL) ?
-            instances.get(GLOBAL).get().retrievePrivileges(guild) :
+        final long id = instances.get(GLOBAL);
+        return id != LongLongMap.NO_VALUE ?
+            guild.retrieveCommandPrivilegesById(id) :
             null;
     }
 
@@ -136,10 +218,11 @@ public final class SlashCommand {
         return retrieveGuildPrivileges(jda.getGuildById(id));
     }
 
-    public synchronized RestAction<List<CommandPrivilege>> retrieveGuildPrivileges(Guild guild) {
+    public RestAction<List<CommandPrivilege>> retrieveGuildPrivileges(Guild guild) {
         Checks.notNull(guild, "Guild");
-        return instances.containsKey(guild.getIdLong()) ?
-            instances.get(guild.getIdLong()).get().retrievePrivileges(guild) :
+        final long id = instances.get(guild.getIdLong());
+        return id != LongLongMap.NO_VALUE ?
+            guild.retrieveCommandPrivilegesById(id) :
             null;
     }
 
@@ -151,11 +234,12 @@ public final class SlashCommand {
         return updateGlobalPrivileges(jda.getGuildById(id), privileges);
     }
 
-    public synchronized RestAction<List<CommandPrivilege>> updateGlobalPrivileges(Guild guild, CommandPrivilege... privileges) {
+    public RestAction<List<CommandPrivilege>> updateGlobalPrivileges(Guild guild, CommandPrivilege... privileges) {
         Checks.notNull(guild, "Guild");
         Checks.noneNull(privileges, "CommandPrivileges");
-        return instances.containsKey(GLOBAL) ?
-            instances.get(GLOBAL).get().updatePrivileges(guild, privileges) :
+        final long id = instances.get(GLOBAL);
+        return id != LongLongMap.NO_VALUE ?
+            guild.updateCommandPrivilegesById(id, privileges) :
             null;
     }
 
@@ -167,11 +251,12 @@ public final class SlashCommand {
         return updateGlobalPrivileges(jda.getGuildById(id), privileges);
     }
 
-    public synchronized RestAction<List<CommandPrivilege>> updateGlobalPrivileges(Guild guild, Collection<CommandPrivilege> privileges) {
+    public RestAction<List<CommandPrivilege>> updateGlobalPrivileges(Guild guild, Collection<CommandPrivilege> privileges) {
         Checks.notNull(guild, "Guild");
         Checks.noneNull(privileges, "CommandPrivileges");
-        return instances.containsKey(GLOBAL) ?
-            instances.get(GLOBAL).get().updatePrivileges(guild, privileges) :
+        final long id = instances.get(GLOBAL);
+        return id != LongLongMap.NO_VALUE ?
+            guild.updateCommandPrivilegesById(id, privileges) :
             null;
     }
 
@@ -183,11 +268,12 @@ public final class SlashCommand {
         return updateGuildPrivileges(jda.getGuildById(id), privileges);
     }
 
-    public synchronized RestAction<List<CommandPrivilege>> updateGuildPrivileges(Guild guild, CommandPrivilege... privileges) {
+    public RestAction<List<CommandPrivilege>> updateGuildPrivileges(Guild guild, CommandPrivilege... privileges) {
         Checks.notNull(guild, "Guild");
         Checks.noneNull(privileges, "CommandPrivileges");
-        return instances.containsKey(guild.getIdLong()) ?
-            instances.get(guild.getIdLong()).get().updatePrivileges(guild, privileges) :
+        final long id = instances.get(guild.getIdLong());
+        return id != LongLongMap.NO_VALUE ?
+            guild.updateCommandPrivilegesById(id, privileges) :
             null;
     }
 
@@ -199,17 +285,18 @@ public final class SlashCommand {
         return updateGuildPrivileges(jda.getGuildById(id), privileges);
     }
 
-    public synchronized RestAction<List<CommandPrivilege>> updateGuildPrivileges(Guild guild, Collection<CommandPrivilege> privileges) {
+    public RestAction<List<CommandPrivilege>> updateGuildPrivileges(Guild guild, Collection<CommandPrivilege> privileges) {
         Checks.notNull(guild, "Guild");
         Checks.noneNull(privileges, "CommandPrivileges");
-        return instances.containsKey(guild.getIdLong()) ?
-            instances.get(guild.getIdLong()).get().updatePrivileges(guild, privileges) :
+        final long id = instances.get(guild.getIdLong());
+        return id != LongLongMap.NO_VALUE ?
+            guild.updateCommandPrivilegesById(id, privileges) :
             null;
     }
 
-    public synchronized SlashCommand upsertGlobal() {
+    public SlashCommand upsertGlobal() {
         jda.upsertCommand(data)
-            .queue(command -> instances.put(GLOBAL, new AtomicReference<>(command)));
+            .queue(command -> instances.put(GLOBAL, command.getIdLong()));
         return this;
     }
 
@@ -221,10 +308,10 @@ public final class SlashCommand {
         return upsertGuild(jda.getGuildById(id));
     }
 
-    public synchronized SlashCommand upsertGuild(Guild guild) {
+    public SlashCommand upsertGuild(Guild guild) {
         Checks.notNull(guild, "Guild");
         guild.upsertCommand(data)
-            .queue(command -> instances.put(guild.getIdLong(), new AtomicReference<>(command)));
+            .queue(command -> instances.put(guild.getIdLong(), command.getIdLong()));
         return this;
     }
 }
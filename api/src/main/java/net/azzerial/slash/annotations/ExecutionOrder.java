@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.annotations;
+
+/**
+ * The ordering guarantee of a handler, when handlers are run on a handler pool.
+ *
+ * <p>Interactions sharing the same key are handled one at a time, in the order they were received, while interactions
+ * of different keys are handled in parallel.</p>
+ */
+public enum ExecutionOrder {
+
+    /** No ordering, interactions are handled as soon as a thread of the pool is available. */
+    UNORDERED,
+    /** Interactions of a same guild (or of a same private channel) are handled in order. */
+    GUILD,
+    /** Interactions of a same channel are handled in order. */
+    CHANNEL,
+    /** Interactions of a same user are handled in order. */
+    USER,
+    /** Interactions on a same message are handled in order, slash commands fall back to their channel. */
+    MESSAGE,
+    /** Interactions of a same user on a same message are handled in order, slash commands fall back to the user. */
+    USER_MESSAGE
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * The annotation holding the annotations describing the layout of a component data payload, compiled by
+ * {@link net.azzerial.slash.util.PayloadCodec PayloadCodec}.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface Payload {
+
+    /**
+     * This annotation labels a field as part of a payload. The field must not be final and be of a primitive, a
+     * {@link String} or an enum type.
+     */
+    @Documented
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.FIELD)
+    @interface Field {
+
+        /** The position of the field in the payload, fields are laid out in ascending order. */
+        int order();
+        /** The number of characters of the field, a {@code boolean} always takes a single one. */
+        int width();
+        /** The radix in which numbers (and enum ordinals) are written, from {@code 2} to {@code 36}. */
+        int radix() default 10;
+    }
+}
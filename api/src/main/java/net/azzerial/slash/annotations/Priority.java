@@ -0,0 +1,53 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.annotations;
+
+/**
+ * The scheduling priority of a handler, when handlers are run on a handler pool.
+ *
+ * <p>Each priority is a lane of the pool, and the lanes share its threads in proportion to their weight. A task left
+ * waiting in a lane for too long is run first whatever its priority, so a low priority lane is slowed down but never
+ * starved.</p>
+ */
+public enum Priority {
+
+    /** The priority of the enclosing command for a handler, {@link #HIGH} for a component. */
+    DEFAULT(0),
+    /** For latency-sensitive handlers, the default of the buttons and the selection menus. */
+    HIGH(16),
+    /** For regular handlers, the default of the slash commands. */
+    NORMAL(4),
+    /** For heavy handlers which tolerate queueing, like report generation. */
+    LOW(1);
+
+    private final int weight;
+
+    /* Constructors */
+
+    Priority(int weight) {
+        this.weight = weight;
+    }
+
+    /* Getters & Setters */
+
+    /**
+     * Returns the share of the pool given to the lane of this priority, relative to the other lanes.
+     */
+    public int getWeight() {
+        return weight;
+    }
+}
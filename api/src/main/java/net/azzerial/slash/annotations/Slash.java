@@ -46,6 +46,10 @@ public @interface Slash {
         SubcommandGroup[] subcommandGroups() default {};
         /** The default permission of the Slash Command, whether the command is enabled by default when the app is added to a guild. */
         boolean enabled() default true;
+        /** The ordering of the handlers of the Slash Command, when run on a handler pool. */
+        ExecutionOrder order() default ExecutionOrder.UNORDERED;
+        /** The priority of the handlers of the Slash Command, when run on a handler pool. */
+        Priority priority() default Priority.DEFAULT;
     }
 
     /**
@@ -58,6 +62,12 @@ public @interface Slash {
 
         /** The tag of the button. */
         String value();
+        /** The slow-call threshold of the handler in milliseconds, {@code -1} to use the one of the client. */
+        long threshold() default -1L;
+        /** The ordering of the handler, when run on a handler pool. */
+        ExecutionOrder order() default ExecutionOrder.UNORDERED;
+        /** The priority of the handler, when run on a handler pool. */
+        Priority priority() default Priority.DEFAULT;
     }
 
     /**
@@ -72,6 +82,14 @@ public @interface Slash {
          * The path to the handler.
          */
         String value() default "";
+        /**
+         * The slow-call threshold of the handler in milliseconds, {@code -1} to use the one of the client.
+         */
+        long threshold() default -1L;
+        /**
+         * The priority of the handler when run on a handler pool, {@link Priority#DEFAULT} to use the one of the command.
+         */
+        Priority priority() default Priority.DEFAULT;
     }
 
     /**
@@ -84,6 +102,12 @@ public @interface Slash {
 
         /** The tag of the selection menu. */
         String value();
+        /** The slow-call threshold of the handler in milliseconds, {@code -1} to use the one of the client. */
+        long threshold() default -1L;
+        /** The ordering of the handler, when run on a handler pool. */
+        ExecutionOrder order() default ExecutionOrder.UNORDERED;
+        /** The priority of the handler, when run on a handler pool. */
+        Priority priority() default Priority.DEFAULT;
     }
 
     /**
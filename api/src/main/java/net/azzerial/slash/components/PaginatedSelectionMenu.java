@@ -0,0 +1,370 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.components;
+
+import net.azzerial.slash.internal.ClientContext;
+import net.azzerial.slash.internal.ComponentRegistry;
+import net.azzerial.slash.internal.util.PageCache;
+import net.azzerial.slash.util.Buffer;
+import net.dv8tion.jda.api.events.interaction.SelectionMenuEvent;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.api.interactions.components.Component;
+import net.dv8tion.jda.api.interactions.components.selections.SelectOption;
+import net.dv8tion.jda.internal.utils.Checks;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A selection menu over a data set too large for the 25 options of a single menu, of which the pages are fetched from
+ * a {@link PageSupplier} as they are viewed.
+ *
+ * <p>The page cursor is written at the start of the component data, followed by the data given to
+ * {@link #render(int, String)}, so a menu needs no server-side state to be paged. Each rendered page is surrounded by
+ * a previous and a next option, and {@link #handle(SelectionMenuEvent)} turns the selection of either of them into a
+ * single message update. The most recently used pages are kept in a small LRU cache, and the pages adjacent to the
+ * rendered one are prefetched in the background.</p>
+ */
+public final class PaginatedSelectionMenu {
+
+    public static final int CURSOR_LENGTH = 4;
+    public static final int MAX_PAGE_SIZE = 23;
+    public static final int DEFAULT_CACHE_SIZE = 32;
+    public static final String PREVIOUS_VALUE = "slash:previous";
+    public static final String NEXT_VALUE = "slash:next";
+
+    private static final int MAX_PAGE = (int) Math.pow(36, CURSOR_LENGTH) - 1;
+
+    private final String tag;
+    private final PageSupplier supplier;
+    private final String placeholder;
+    private final int pageSize;
+    private final boolean prefetch;
+    private final Executor executor;
+    private final SelectOption previous;
+    private final SelectOption next;
+    private final PageCache<Page> pages;
+
+    /* Constructors */
+
+    private PaginatedSelectionMenu(Builder builder) {
+        this.tag = builder.tag;
+        this.supplier = builder.supplier;
+        this.placeholder = builder.placeholder;
+        this.pageSize = builder.pageSize;
+        this.prefetch = builder.prefetch;
+        this.executor = builder.executor;
+        this.previous = SelectOption.of(builder.previousLabel, PREVIOUS_VALUE);
+        this.next = SelectOption.of(builder.nextLabel, NEXT_VALUE);
+        this.pages = new PageCache<>(builder.cacheSize);
+    }
+
+    /* Getters & Setters */
+
+    public String getTag() {
+        return tag;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns the page a component id of this menu was rendered for.
+     */
+    public static int getPage(String id) {
+        Checks.notNull(id, "Id");
+        return Buffer.Reader.of(id).read(CURSOR_LENGTH).asInt(36);
+    }
+
+    /**
+     * Returns the data a component id of this menu was rendered with, or {@code null} if there is none.
+     */
+    public static String getData(String id) {
+        Checks.notNull(id, "Id");
+        final Buffer.Reader reader = Buffer.Reader.of(id);
+
+        reader.read(CURSOR_LENGTH);
+
+        // not trimmed, the data is given back exactly as it was rendered
+        final Buffer.Reader.Data data = reader.read(ComponentRegistry.getCurrentMaxDataLength());
+        return data.isEmpty() ? null : data.asRawString();
+    }
+
+    /**
+     * Returns the values selected from a page, the navigation options excluded.
+     */
+    public static List<String> getValues(SelectionMenuEvent event) {
+        Checks.notNull(event, "Event");
+        final List<String> values = new ArrayList<>(event.getValues());
+
+        values.remove(PREVIOUS_VALUE);
+        values.remove(NEXT_VALUE);
+        return values;
+    }
+
+    /* Methods */
+
+    public static PaginatedSelectionMenu.Builder create(String tag, PageSupplier supplier) {
+        return new PaginatedSelectionMenu.Builder(tag, supplier);
+    }
+
+    public SlashSelectionMenu render(int page) {
+        return render(page, null);
+    }
+
+    /**
+     * Renders a page of the data set identified by the given data, blocking if the page is neither cached nor already
+     * being prefetched.
+     */
+    public SlashSelectionMenu render(int page, String data) {
+        return renderAsync(page, data).join();
+    }
+
+    public CompletableFuture<SlashSelectionMenu> renderAsync(int page, String data) {
+        Checks.notNegative(page, "Page");
+        Checks.check(page <= MAX_PAGE, "Page may not be greater than %d! Provided: %d", MAX_PAGE, page);
+        // unsigned ids are trimmed, trailing whitespace would not survive the round trip
+        Checks.check(
+            data == null || data.isEmpty() || !Character.isWhitespace(data.charAt(data.length() - 1)),
+            "Data may not end with whitespace!"
+        );
+        return load(page, data).thenApply(p -> {
+            if (prefetch) {
+                if (p.hasNext && page != MAX_PAGE) {
+                    load(page + 1, data);
+                }
+                if (page != 0) {
+                    load(page - 1, data);
+                }
+            }
+            return build(page, data, p);
+        });
+    }
+
+    /**
+     * Moves the menu of the event to the previous or next page if one of the navigation options was selected. A cached
+     * page is applied with a single message update, otherwise the interaction is acknowledged right away and the
+     * message is edited once the page is loaded, so a slow page supplier cannot miss the acknowledgement deadline.
+     *
+     * @return {@code true} if the event was a page change and was answered, {@code false} if it is a selection which is
+     *         left to the caller
+     */
+    public boolean handle(SelectionMenuEvent event) {
+        Checks.notNull(event, "Event");
+        final List<String> values = event.getValues();
+        final int delta = values.contains(NEXT_VALUE) ? 1 : values.contains(PREVIOUS_VALUE) ? -1 : 0;
+
+        if (delta == 0) {
+            return false;
+        }
+
+        final String id = event.getComponentId();
+        final int page = Math.max(0, Math.min(MAX_PAGE, getPage(id) + delta));
+        final CompletableFuture<SlashSelectionMenu> future = renderAsync(page, getData(id));
+
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            event.deferEdit()
+                .setActionRows(replaceRow(event.getMessage().getActionRows(), id, ActionRow.of(future.join())))
+                .queue();
+            return true;
+        }
+
+        final ClientContext context = ClientContext.current();
+
+        event.deferEdit().queue();
+        // the menu is rendered on the thread completing the page, in the context of the client of the event
+        future.thenAccept(menu -> context.run(() -> event.getHook()
+            .editOriginalComponents(Arrays.asList(replaceRow(event.getMessage().getActionRows(), id, ActionRow.of(menu))))
+            .queue()
+        ));
+        return true;
+    }
+
+    /**
+     * Drops the cached pages of the data set identified by the given data, after it has changed.
+     */
+    public void invalidate(String data) {
+        final String suffix = data == null ? "" : data;
+
+        pages.removeIf(key -> key.length() == CURSOR_LENGTH + suffix.length() && key.endsWith(suffix));
+    }
+
+    public void invalidateAll() {
+        pages.clear();
+    }
+
+    /* Internal */
+
+    private static String key(int page, String data) {
+        return Buffer.Writer.create().write(CURSOR_LENGTH, page, 36).toString() + (data == null ? "" : data);
+    }
+
+    private CompletableFuture<Page> load(int page, String data) {
+        return pages.get(key(page, data), () -> {
+            // one more option than a page holds tells whether there is a next page
+            final List<SelectOption> options = supplier.getOptions(data, page * pageSize, pageSize + 1);
+
+            Checks.noneNull(options, "Options");
+            return new Page(options, pageSize);
+        }, executor);
+    }
+
+    private SlashSelectionMenu build(int page, String data, Page p) {
+        final SlashSelectionMenu.Builder builder = SlashSelectionMenu.create(tag, key(page, data))
+            .setPlaceholder(placeholder);
+
+        if (page != 0) {
+            builder.addOptions(previous);
+        }
+        builder.addOptions(p.options);
+        if (p.hasNext) {
+            builder.addOptions(next);
+        }
+        return builder.build().freeze();
+    }
+
+    // replaces the row holding the component of the given id
+    static ActionRow[] replaceRow(List<ActionRow> rows, String id, ActionRow row) {
+        final ActionRow[] replaced = new ActionRow[rows.size()];
+
+        for (int i = 0; i != replaced.length; i++) {
+            replaced[i] = rows.get(i);
+            for (Component component : rows.get(i).getComponents()) {
+                if (id.equals(component.getId())) {
+                    replaced[i] = row;
+                    break;
+                }
+            }
+        }
+        return replaced;
+    }
+
+    /* Nested Classes */
+
+    @FunctionalInterface
+    public interface PageSupplier {
+
+        /**
+         * Returns up to {@code limit} options of the data set identified by the given data, starting at {@code
+         * offset}. Fewer options than the limit means that the end of the data set was reached.
+         */
+        List<SelectOption> getOptions(String data, int offset, int limit);
+    }
+
+    private static final class Page {
+
+        private final List<SelectOption> options;
+        private final boolean hasNext;
+
+        /* Constructors */
+
+        private Page(List<SelectOption> options, int pageSize) {
+            this.hasNext = options.size() > pageSize;
+            this.options = Collections.unmodifiableList(new ArrayList<>(hasNext ? options.subList(0, pageSize) : options));
+        }
+    }
+
+    public static final class Builder {
+
+        private String tag;
+        private final PageSupplier supplier;
+        private String placeholder;
+        private String previousLabel = "\u25C0 Previous page";
+        private String nextLabel = "Next page \u25B6";
+        private int pageSize = MAX_PAGE_SIZE;
+        private int cacheSize = DEFAULT_CACHE_SIZE;
+        private boolean prefetch = true;
+        private Executor executor = ForkJoinPool.commonPool();
+
+        /* Constructors */
+
+        private Builder(String tag, PageSupplier supplier) {
+            Checks.notNull(supplier, "Supplier");
+            setTag(tag);
+            this.supplier = supplier;
+        }
+
+        /* Getters & Setters */
+
+        public PaginatedSelectionMenu.Builder setTag(String tag) {
+            Checks.notEmpty(tag, "Tag");
+            this.tag = tag;
+            return this;
+        }
+
+        public PaginatedSelectionMenu.Builder setPlaceholder(String placeholder) {
+            if (placeholder != null) {
+                Checks.notEmpty(placeholder, "Placeholder");
+                Checks.notLonger(placeholder, 100, "Placeholder");
+            }
+            this.placeholder = placeholder;
+            return this;
+        }
+
+        public PaginatedSelectionMenu.Builder setNavigationLabels(String previous, String next) {
+            Checks.notEmpty(previous, "Previous");
+            Checks.notLonger(previous, 100, "Previous");
+            Checks.notEmpty(next, "Next");
+            Checks.notLonger(next, 100, "Next");
+            this.previousLabel = previous;
+            this.nextLabel = next;
+            return this;
+        }
+
+        /**
+         * Sets the number of options of a page, at most 23 so that the navigation options fit in the menu.
+         */
+        public PaginatedSelectionMenu.Builder setPageSize(int pageSize) {
+            Checks.positive(pageSize, "Page Size");
+            Checks.check(pageSize <= MAX_PAGE_SIZE, "Page Size may not be greater than %d! Provided: %d", MAX_PAGE_SIZE, pageSize);
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of pages, across all the data sets, which are kept once rendered.
+         */
+        public PaginatedSelectionMenu.Builder setCacheSize(int cacheSize) {
+            Checks.positive(cacheSize, "Cache Size");
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        public PaginatedSelectionMenu.Builder setPrefetch(boolean prefetch) {
+            this.prefetch = prefetch;
+            return this;
+        }
+
+        /**
+         * Sets the executor on which the pages are fetched, the common pool by default.
+         */
+        public PaginatedSelectionMenu.Builder setExecutor(Executor executor) {
+            Checks.notNull(executor, "Executor");
+            this.executor = executor;
+            return this;
+        }
+
+        /* Methods */
+
+        public PaginatedSelectionMenu build() {
+            return new PaginatedSelectionMenu(this);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.components;
+
+import net.azzerial.slash.internal.ClientContext;
+import net.azzerial.slash.internal.ComponentRegistry;
+import net.azzerial.slash.internal.util.PageCache;
+import net.azzerial.slash.util.Buffer;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.events.interaction.ButtonClickEvent;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.internal.utils.Checks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToIntFunction;
+
+/**
+ * Pages through embeds rendered on demand, with a row of {@link SlashButton}s.
+ *
+ * <p>The whole state of a paginator lives in its button ids: each button holds the page it leads to, followed by the
+ * data given to {@link #render(String, int)}, which identifies the content being paged. Rendered pages are kept in a
+ * bounded LRU cache keyed by that data, so viewers of the same content share them, and the next page can be rendered
+ * ahead of time. A page change is answered by {@link #handle(ButtonClickEvent)} with a single {@code deferEdit}
+ * update carrying both the embed and the buttons.</p>
+ */
+public final class Paginator {
+
+    public static final int CURSOR_LENGTH = 4;
+    public static final int DEFAULT_CACHE_SIZE = 64;
+    public static final int UNKNOWN_PAGE_COUNT = -1;
+
+    private static final int MAX_PAGE = (int) Math.pow(36, CURSOR_LENGTH) - 1;
+    // a button id starts with its action, so that two buttons leading to the same page still have distinct ids
+    private static final char FIRST = 'f';
+    private static final char PREVIOUS = 'p';
+    private static final char CURRENT = 'c';
+    private static final char NEXT = 'n';
+    private static final char LAST = 'l';
+
+    private final String tag;
+    private final PageRenderer renderer;
+    private final ToIntFunction<String> pageCounter;
+    private final boolean precompute;
+    private final Executor executor;
+    private final String previousLabel;
+    private final String nextLabel;
+    private final PageCache<MessageEmbed> pages;
+
+    /* Constructors */
+
+    private Paginator(Builder builder) {
+        this.tag = builder.tag;
+        this.renderer = builder.renderer;
+        this.pageCounter = builder.pageCounter;
+        this.precompute = builder.precompute;
+        this.executor = builder.executor;
+        this.previousLabel = builder.previousLabel;
+        this.nextLabel = builder.nextLabel;
+        this.pages = new PageCache<>(builder.cacheSize);
+    }
+
+    /* Getters & Setters */
+
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Returns the page a button of this paginator leads to.
+     */
+    public static int getPage(String id) {
+        Checks.notNull(id, "Id");
+        final Buffer.Reader reader = Buffer.Reader.of(id);
+
+        reader.read(1);
+        return reader.read(CURSOR_LENGTH).asInt(36);
+    }
+
+    /**
+     * Returns the data a button of this paginator was rendered with, or {@code null} if there is none.
+     */
+    public static String getData(String id) {
+        Checks.notNull(id, "Id");
+        final Buffer.Reader reader = Buffer.Reader.of(id);
+
+        reader.read(1 + CURSOR_LENGTH);
+
+        // not trimmed, the data is given back exactly as it was rendered
+        final Buffer.Reader.Data data = reader.read(ComponentRegistry.getCurrentMaxDataLength());
+        return data.isEmpty() ? null : data.asRawString();
+    }
+
+    /* Methods */
+
+    public static Paginator.Builder create(String tag, PageRenderer renderer) {
+        return new Paginator.Builder(tag, renderer);
+    }
+
+    /**
+     * Renders a page of the content identified by the given data, blocking if it is neither cached nor already being
+     * rendered. Returns {@code null} if the renderer has no such page.
+     */
+    public MessageEmbed render(String data, int page) {
+        return renderAsync(data, page).join();
+    }
+
+    public CompletableFuture<MessageEmbed> renderAsync(String data, int page) {
+        Checks.notNegative(page, "Page");
+        Checks.check(page <= MAX_PAGE, "Page may not be greater than %d! Provided: %d", MAX_PAGE, page);
+        return load(data, page).thenApply(embed -> {
+            if (embed != null && precompute && page != MAX_PAGE && hasPage(data, page + 1)) {
+                load(data, page + 1);
+            }
+            return embed;
+        });
+    }
+
+    /**
+     * Renders the navigation buttons of a page: first, previous, the page indicator, next and last. The first and last
+     * buttons are only rendered when a page counter is set.
+     */
+    public ActionRow renderButtons(String data, int page) {
+        // unsigned ids are trimmed, trailing whitespace would not survive the round trip
+        Checks.check(
+            data == null || data.isEmpty() || !Character.isWhitespace(data.charAt(data.length() - 1)),
+            "Data may not end with whitespace!"
+        );
+        final int count = pageCount(data);
+        final List<SlashButton> buttons = new ArrayList<>(5);
+        final boolean hasNext = page != MAX_PAGE && (count == UNKNOWN_PAGE_COUNT || page + 1 < count);
+
+        if (count != UNKNOWN_PAGE_COUNT) {
+            buttons.add(button(FIRST, 0, data, "\u23EE").withDisabled(page == 0));
+        }
+        buttons.add(button(PREVIOUS, Math.max(0, page - 1), data, previousLabel).withDisabled(page == 0));
+        buttons.add(button(CURRENT, page, data, count == UNKNOWN_PAGE_COUNT ? Integer.toString(page + 1) : (page + 1) + "/" + count).asDisabled());
+        buttons.add(button(NEXT, hasNext ? page + 1 : page, data, nextLabel).withDisabled(!hasNext));
+        if (count != UNKNOWN_PAGE_COUNT) {
+            buttons.add(button(LAST, Math.max(0, count - 1), data, "\u23ED").withDisabled(!hasNext));
+        }
+        return ActionRow.of(buttons);
+    }
+
+    /**
+     * Moves the message of the event to the page its button leads to. A cached page is applied with a single update of
+     * the embed and the buttons, otherwise the interaction is acknowledged right away and the message is edited once
+     * the page is rendered, so a slow renderer cannot miss the acknowledgement deadline. If there is no such page, the
+     * message is left unchanged.
+     */
+    public void handle(ButtonClickEvent event) {
+        Checks.notNull(event, "Event");
+        final String id = event.getComponentId();
+        final String data = getData(id);
+        final int page = getPage(id);
+        final CompletableFuture<MessageEmbed> future = renderAsync(data, page);
+
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            final MessageEmbed embed = future.join();
+
+            if (embed == null) {
+                event.deferEdit().queue();
+                return;
+            }
+            event.deferEdit()
+                .setEmbeds(Collections.singletonList(embed))
+                .setActionRows(PaginatedSelectionMenu.replaceRow(event.getMessage().getActionRows(), id, renderButtons(data, page)))
+                .queue();
+            return;
+        }
+
+        final ClientContext context = ClientContext.current();
+
+        event.deferEdit().queue();
+        // the buttons are rendered on the thread completing the page, in the context of the client of the event
+        future.thenAccept(embed -> context.run(() -> {
+            if (embed == null) {
+                return;
+            }
+            event.getHook()
+                .editOriginalEmbeds(embed)
+                .setActionRows(PaginatedSelectionMenu.replaceRow(event.getMessage().getActionRows(), id, renderButtons(data, page)))
+                .queue();
+        }));
+    }
+
+    /**
+     * Drops the cached pages of the content identified by the given data, after it has changed.
+     */
+    public void invalidate(String data) {
+        final String suffix = data == null ? "" : data;
+
+        pages.removeIf(key -> key.length() == CURSOR_LENGTH + suffix.length() && key.endsWith(suffix));
+    }
+
+    public void invalidateAll() {
+        pages.clear();
+    }
+
+    /* Internal */
+
+    private static String cursor(int page) {
+        return Buffer.Writer.create().write(CURSOR_LENGTH, page, 36).toString();
+    }
+
+    private int pageCount(String data) {
+        return pageCounter == null ? UNKNOWN_PAGE_COUNT : pageCounter.applyAsInt(data);
+    }
+
+    private boolean hasPage(String data, int page) {
+        final int count = pageCount(data);
+        return count == UNKNOWN_PAGE_COUNT || page < count;
+    }
+
+    private CompletableFuture<MessageEmbed> load(String data, int page) {
+        return pages.get(cursor(page) + (data == null ? "" : data), () -> renderer.render(data, page), executor);
+    }
+
+    private SlashButton button(char action, int page, String data, String label) {
+        return SlashButton.secondary(tag, label)
+            .withData(action + cursor(page) + (data == null ? "" : data));
+    }
+
+    /* Nested Classes */
+
+    @FunctionalInterface
+    public interface PageRenderer {
+
+        /**
+         * Renders a page of the content identified by the given data, or returns {@code null} if there is no such page.
+         */
+        MessageEmbed render(String data, int page);
+    }
+
+    public static final class Builder {
+
+        private String tag;
+        private final PageRenderer renderer;
+        private ToIntFunction<String> pageCounter;
+        private String previousLabel = "\u25C0";
+        private String nextLabel = "\u25B6";
+        private int cacheSize = DEFAULT_CACHE_SIZE;
+        private boolean precompute = false;
+        private Executor executor = ForkJoinPool.commonPool();
+
+        /* Constructors */
+
+        private Builder(String tag, PageRenderer renderer) {
+            Checks.notNull(renderer, "Renderer");
+            setTag(tag);
+            this.renderer = renderer;
+        }
+
+        /* Getters & Setters */
+
+        public Paginator.Builder setTag(String tag) {
+            Checks.notEmpty(tag, "Tag");
+            this.tag = tag;
+            return this;
+        }
+
+        /**
+         * Sets the function returning the number of pages of a content, which enables the first and last buttons and
+         * the total in the page indicator. Without it, the next button is enabled until the renderer returns
+         * {@code null}.
+         */
+        public Paginator.Builder setPageCounter(ToIntFunction<String> pageCounter) {
+            this.pageCounter = pageCounter;
+            return this;
+        }
+
+        public Paginator.Builder setNavigationLabels(String previous, String next) {
+            Checks.notEmpty(previous, "Previous");
+            Checks.notLonger(previous, 80, "Previous");
+            Checks.notEmpty(next, "Next");
+            Checks.notLonger(next, 80, "Next");
+            this.previousLabel = previous;
+            this.nextLabel = next;
+            return this;
+        }
+
+        /**
+         * Sets the number of rendered pages, across all the contents, which are kept.
+         */
+        public Paginator.Builder setCacheSize(int cacheSize) {
+            Checks.positive(cacheSize, "Cache Size");
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * Sets whether the page following a rendered page is rendered ahead of time.
+         */
+        public Paginator.Builder setPrecompute(boolean precompute) {
+            this.precompute = precompute;
+            return this;
+        }
+
+        /**
+         * Sets the executor on which the pages are rendered, the common pool by default.
+         */
+        public Paginator.Builder setExecutor(Executor executor) {
+            Checks.notNull(executor, "Executor");
+            this.executor = executor;
+            return this;
+        }
+
+        /* Methods */
+
+        public Paginator build() {
+            return new Paginator(this);
+        }
+    }
+}
@@ -25,6 +25,8 @@ import net.dv8tion.jda.internal.utils.Checks;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.concurrent.TimeUnit;
+
 public final class SlashButton implements Component {
 
     private String tag;
@@ -34,6 +36,11 @@ public final class SlashButton implements Component {
     private String url;
     private boolean disabled;
     private Emoji emoji;
+    private final boolean frozen;
+    // the registry of the client the button was built for, if it was built in the context of a client
+    private final ComponentRegistry owner;
+    private long expiry;
+    private volatile Serialized serialized;
 
     /* Constructors */
 
@@ -42,6 +49,14 @@ public final class SlashButton implements Component {
     }
 
     SlashButton(String tag, String data, String label, ButtonStyle style, String url, boolean disabled, Emoji emoji) {
+        this(tag, data, label, style, url, disabled, emoji, false);
+    }
+
+    private SlashButton(String tag, String data, String label, ButtonStyle style, String url, boolean disabled, Emoji emoji, boolean frozen) {
+        this(tag, data, label, style, url, disabled, emoji, frozen, ComponentRegistry.peek());
+    }
+
+    private SlashButton(String tag, String data, String label, ButtonStyle style, String url, boolean disabled, Emoji emoji, boolean frozen, ComponentRegistry owner) {
         this.tag = tag;
         this.data = data;
         this.label = label;
@@ -49,6 +64,8 @@ public final class SlashButton implements Component {
         this.url = url;
         this.disabled = disabled;
         this.emoji = emoji;
+        this.frozen = frozen;
+        this.owner = owner;
     }
 
     /* Getters & Setters */
@@ -62,7 +79,7 @@ public final class SlashButton implements Component {
     @Nullable
     @Override
     public String getId() {
-        return tag == null ? null : ComponentRegistry.getInstance().formatComponentId(tag, data);
+        return frozen ? getSerialized().id : formatId();
     }
 
     public String getTag() {
@@ -70,6 +87,7 @@ public final class SlashButton implements Component {
     }
 
     public SlashButton withTag(String tag) {
+        checkNotFrozen();
         Checks.notEmpty(tag, "Tag");
         this.tag = tag;
         return this;
@@ -80,17 +98,35 @@ public final class SlashButton implements Component {
     }
 
     public SlashButton withData(String data) {
+        checkNotFrozen();
         Checks.notEmpty(data, "Data");
-        Checks.notLonger(data, 100 - ComponentRegistry.CODE_LENGTH, "Data");
+        Checks.notLonger(data, ComponentRegistry.getCurrentMaxDataLength(), "Data");
         this.data = data;
         return this;
     }
 
+    public long getExpiry() {
+        return expiry;
+    }
+
+    /**
+     * Sets the delay after which the id of this button stops resolving to its callback, or {@code 0} for none. The
+     * delay is counted from the moment the button is sent, and is only enforced when component ids are signed.
+     */
+    public SlashButton withExpiry(long expiry, TimeUnit unit) {
+        checkNotFrozen();
+        Checks.notNegative(expiry, "Expiry");
+        Checks.notNull(unit, "Unit");
+        this.expiry = unit.toMillis(expiry);
+        return this;
+    }
+
     public String getLabel() {
         return label;
     }
 
     public SlashButton withLabel(String label) {
+        checkNotFrozen();
         Checks.notEmpty(label, "Label");
         Checks.notLonger(label, 80, "Label");
         this.label = label;
@@ -106,6 +142,7 @@ public final class SlashButton implements Component {
     }
 
     public SlashButton withUrl(String url) {
+        checkNotFrozen();
         Checks.notEmpty(url, "Url");
         Checks.notLonger(url, 512, "Url");
         this.url = url;
@@ -118,6 +155,7 @@ public final class SlashButton implements Component {
     }
 
     public SlashButton withEmoji(Emoji emoji) {
+        checkNotFrozen();
         this.emoji = emoji;
         return this;
     }
@@ -126,17 +164,24 @@ public final class SlashButton implements Component {
         return disabled;
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
     public SlashButton asDisabled() {
+        checkNotFrozen();
         this.disabled = true;
         return this;
     }
 
     public SlashButton asEnabled() {
+        checkNotFrozen();
         this.disabled = false;
         return this;
     }
 
     public SlashButton withDisabled(boolean disabled) {
+        checkNotFrozen();
         this.disabled = disabled;
         return this;
     }
@@ -242,9 +287,76 @@ public final class SlashButton implements Component {
         throw new IllegalArgumentException("Cannot build a button without a label and emoji. At least one has to be provided as non-null.");
     }
 
+    /**
+     * Returns an immutable copy of this button, of which the component id and the serialized form are only computed
+     * once (unless its data is spilled, see {@link net.azzerial.slash.SlashClient.Flag#SPILL_OVERSIZED_DATA}). Frozen
+     * buttons (and action rows made of frozen components) can be reused across messages.
+     *
+     * @return the frozen button
+     */
+    public SlashButton freeze() {
+        if (frozen) {
+            return this;
+        }
+
+        final SlashButton button = new SlashButton(tag, data, label, style, url, disabled, emoji, true, owner);
+
+        button.expiry = expiry;
+        return button;
+    }
+
     @NotNull
     @Override
     public DataObject toData() {
+        return frozen ? DataObject.fromJson(getSerialized().json) : buildData(formatId());
+    }
+
+    /* Internal */
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Cannot modify a frozen button!");
+        }
+    }
+
+    private ComponentRegistry getRegistry() {
+        return owner != null ? owner : ComponentRegistry.getInstance(tag);
+    }
+
+    private String formatId() {
+        return formatId(getRegistry());
+    }
+
+    private String formatId(ComponentRegistry registry) {
+        if (tag == null) {
+            return null;
+        }
+        return registry.formatComponentId(
+            tag,
+            data,
+            expiry == 0L ? 0L : System.currentTimeMillis() + expiry
+        );
+    }
+
+    private Serialized getSerialized() {
+        final ComponentRegistry registry = getRegistry();
+        Serialized serialized = this.serialized;
+
+        // a frozen component may be sent by several clients, each of which gives its own code to the tag
+        if (serialized == null || serialized.registry != registry) {
+            final String id = formatId(registry);
+
+            serialized = new Serialized(registry, id, buildData(id));
+            // the id is only final once the tag has been given its code, and never if it expires or if its data was
+            // spilled (the spill store may drop the data, which is spilled again with every new id)
+            if (tag == null || (expiry == 0L && registry.isRegistered(tag) && !ComponentRegistry.isSpilled(id))) {
+                this.serialized = serialized;
+            }
+        }
+        return serialized;
+    }
+
+    private DataObject buildData(String id) {
         final DataObject json = DataObject.empty();
 
         json.put("type", 2);
@@ -257,8 +369,26 @@ public final class SlashButton implements Component {
         if (url != null) {
             json.put("url", url);
         } else {
-            json.put("custom_id", getId());
+            json.put("custom_id", id);
         }
         return json;
     }
+
+    /* Nested Classes */
+
+    private static final class Serialized {
+
+        private final ComponentRegistry registry;
+        private final String id;
+        // kept serialized, so that every caller gets its own copy to modify
+        private final byte[] json;
+
+        /* Constructors */
+
+        private Serialized(ComponentRegistry registry, String id, DataObject json) {
+            this.registry = registry;
+            this.id = id;
+            this.json = json.toJson();
+        }
+    }
 }
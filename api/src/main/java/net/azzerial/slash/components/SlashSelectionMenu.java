@@ -27,10 +27,21 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public final class SlashSelectionMenu implements Component {
 
+    private static final int MAX_INTERNED_OPTIONS = 256;
+    private static final Map<String, InternedOptions> internedOptions = Collections.synchronizedMap(
+        new LinkedHashMap<String, InternedOptions>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, InternedOptions> eldest) {
+                return size() > MAX_INTERNED_OPTIONS;
+            }
+        }
+    );
+
     private String tag;
     private String data;
     private String placeholder;
@@ -38,6 +49,12 @@ public final class SlashSelectionMenu implements Component {
     private int maxValues;
     private boolean disabled;
     private final List<SelectOption> options;
+    private final boolean frozen;
+    private final DataArray optionsJson;
+    // the registry of the client the menu was built for, if it was built in the context of a client
+    private final ComponentRegistry owner;
+    private long expiry;
+    private volatile Serialized serialized;
 
     /* Constructors */
 
@@ -49,6 +66,25 @@ public final class SlashSelectionMenu implements Component {
         this.maxValues = maxValues;
         this.disabled = disabled;
         this.options = options;
+        this.frozen = false;
+        this.optionsJson = null;
+        this.owner = ComponentRegistry.peek();
+    }
+
+    private SlashSelectionMenu(SlashSelectionMenu menu) {
+        final InternedOptions interned = internOptions(menu.options);
+
+        this.tag = menu.tag;
+        this.data = menu.data;
+        this.placeholder = menu.placeholder;
+        this.minValues = menu.minValues;
+        this.maxValues = menu.maxValues;
+        this.disabled = menu.disabled;
+        this.expiry = menu.expiry;
+        this.options = interned.options;
+        this.frozen = true;
+        this.optionsJson = interned.json;
+        this.owner = menu.owner;
     }
 
     /* Getters & Setters */
@@ -62,7 +98,7 @@ public final class SlashSelectionMenu implements Component {
     @Nullable
     @Override
     public String getId() {
-        return tag == null ? null : ComponentRegistry.getInstance().formatComponentId(tag, data);
+        return frozen ? getSerialized().id : formatId();
     }
 
     public String getTag() {
@@ -70,6 +106,7 @@ public final class SlashSelectionMenu implements Component {
     }
 
     public SlashSelectionMenu withTag(String tag) {
+        checkNotFrozen();
         Checks.notEmpty(tag, "Tag");
         this.tag = tag;
         return this;
@@ -80,12 +117,29 @@ public final class SlashSelectionMenu implements Component {
     }
 
     public SlashSelectionMenu withData(String data) {
+        checkNotFrozen();
         Checks.notEmpty(data, "Data");
-        Checks.notLonger(data, 100 - ComponentRegistry.CODE_LENGTH, "Data");
+        Checks.notLonger(data, ComponentRegistry.getCurrentMaxDataLength(), "Data");
         this.data = data;
         return this;
     }
 
+    public long getExpiry() {
+        return expiry;
+    }
+
+    /**
+     * Sets the delay after which the id of this selection menu stops resolving to its callback, or {@code 0} for none. The
+     * delay is counted from the moment the selection menu is sent, and is only enforced when component ids are signed.
+     */
+    public SlashSelectionMenu withExpiry(long expiry, TimeUnit unit) {
+        checkNotFrozen();
+        Checks.notNegative(expiry, "Expiry");
+        Checks.notNull(unit, "Unit");
+        this.expiry = unit.toMillis(expiry);
+        return this;
+    }
+
     public String getPlaceholder() {
         return placeholder;
     }
@@ -103,16 +157,19 @@ public final class SlashSelectionMenu implements Component {
     }
 
     public SlashSelectionMenu asDisabled() {
+        checkNotFrozen();
         this.disabled = true;
         return this;
     }
 
     public SlashSelectionMenu asEnabled() {
+        checkNotFrozen();
         this.disabled = false;
         return this;
     }
 
     public SlashSelectionMenu withDisabled(boolean disabled) {
+        checkNotFrozen();
         this.disabled = disabled;
         return this;
     }
@@ -121,6 +178,10 @@ public final class SlashSelectionMenu implements Component {
         return options;
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
     /* Methods */
 
     public static SlashSelectionMenu.Builder create(String tag) {
@@ -141,17 +202,84 @@ public final class SlashSelectionMenu implements Component {
         return builder;
     }
 
+    /**
+     * Returns an immutable copy of this selection menu, of which the component id and the serialized form are only
+     * computed once (unless its data is spilled, see {@link net.azzerial.slash.SlashClient.Flag#SPILL_OVERSIZED_DATA}).
+     * Identical option lists of frozen menus share the same instance.
+     *
+     * @return the frozen selection menu
+     */
+    public SlashSelectionMenu freeze() {
+        return frozen ?
+            this :
+            new SlashSelectionMenu(this);
+    }
+
     @NotNull
     @Override
     public DataObject toData() {
+        return frozen ? DataObject.fromJson(getSerialized().json) : buildData(formatId(), DataArray.fromCollection(options));
+    }
+
+    /* Internal */
+
+    private static InternedOptions internOptions(List<SelectOption> options) {
+        final DataArray json = DataArray.fromCollection(options);
+        return internedOptions.computeIfAbsent(json.toString(), k -> new InternedOptions(options, json));
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Cannot modify a frozen selection menu!");
+        }
+    }
+
+    private ComponentRegistry getRegistry() {
+        return owner != null ? owner : ComponentRegistry.getInstance(tag);
+    }
+
+    private String formatId() {
+        return formatId(getRegistry());
+    }
+
+    private String formatId(ComponentRegistry registry) {
+        if (tag == null) {
+            return null;
+        }
+        return registry.formatComponentId(
+            tag,
+            data,
+            expiry == 0L ? 0L : System.currentTimeMillis() + expiry
+        );
+    }
+
+    private Serialized getSerialized() {
+        final ComponentRegistry registry = getRegistry();
+        Serialized serialized = this.serialized;
+
+        // a frozen component may be sent by several clients, each of which gives its own code to the tag
+        if (serialized == null || serialized.registry != registry) {
+            final String id = formatId(registry);
+
+            serialized = new Serialized(registry, id, buildData(id, optionsJson));
+            // the id is only final once the tag has been given its code, and never if it expires or if its data was
+            // spilled (the spill store may drop the data, which is spilled again with every new id)
+            if (tag == null || (expiry == 0L && registry.isRegistered(tag) && !ComponentRegistry.isSpilled(id))) {
+                this.serialized = serialized;
+            }
+        }
+        return serialized;
+    }
+
+    private DataObject buildData(String id, DataArray options) {
         final DataObject json = DataObject.empty();
 
         json.put("type", 3);
-        json.put("custom_id", getId());
+        json.put("custom_id", id);
         json.put("min_values", minValues);
         json.put("max_values", maxValues);
         json.put("disabled", disabled);
-        json.put("options", DataArray.fromCollection(options));
+        json.put("options", options);
         if (placeholder != null) {
             json.put("placeholder", placeholder);
         }
@@ -160,6 +288,35 @@ public final class SlashSelectionMenu implements Component {
 
     /* Nested Classes */
 
+    private static final class Serialized {
+
+        private final ComponentRegistry registry;
+        private final String id;
+        // kept serialized, so that every caller gets its own copy to modify
+        private final byte[] json;
+
+        /* Constructors */
+
+        private Serialized(ComponentRegistry registry, String id, DataObject json) {
+            this.registry = registry;
+            this.id = id;
+            this.json = json.toJson();
+        }
+    }
+
+    private static final class InternedOptions {
+
+        private final List<SelectOption> options;
+        private final DataArray json;
+
+        /* Constructors */
+
+        private InternedOptions(List<SelectOption> options, DataArray json) {
+            this.options = Collections.unmodifiableList(new ArrayList<>(options));
+            this.json = json;
+        }
+    }
+
     public static final class Builder {
 
         private String tag;
@@ -197,7 +354,7 @@ public final class SlashSelectionMenu implements Component {
 
         public SlashSelectionMenu.Builder setData(String data) {
             Checks.notEmpty(data, "Data");
-            Checks.notLonger(data, 100 - ComponentRegistry.CODE_LENGTH, "Data");
+            Checks.notLonger(data, ComponentRegistry.getCurrentMaxDataLength(), "Data");
             this.data = data;
             return this;
         }
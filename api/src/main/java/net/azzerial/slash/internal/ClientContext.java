@@ -0,0 +1,188 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal;
+
+import net.azzerial.slash.util.Session;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The component registry, the spill store and the session store of a client.
+ *
+ * <p>The context of a client is made current on the threads running its handlers, which is how the static entry
+ * points ({@link ComponentRegistry#getInstance()}, {@link Session#create()}, component ids...) resolve to the right
+ * client. The first client built owns the default context, which keeps a single-client process working as before, and
+ * every other client gets a context of its own. Outside of a handler, they resolve to the default context as long as
+ * it is the only one, and fail otherwise rather than silently encoding ids for another client. A context is claimed
+ * when its client is built and released when it is shut down, after which the default context can be claimed again.</p>
+ */
+public final class ClientContext {
+
+    private static final ClientContext DEFAULT = new ClientContext();
+    private static final AtomicBoolean claimed = new AtomicBoolean();
+    private static final AtomicInteger isolated = new AtomicInteger();
+    private static final ThreadLocal<ClientContext> current = new ThreadLocal<>();
+
+    private final SpillStore spillStore = new SpillStore();
+    private final ComponentRegistry componentRegistry = new ComponentRegistry(spillStore);
+    // the expiry actions of the sessions run in the context of their client as well
+    private final Session.Store sessionStore = new Session.Store(this::run);
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /* Constructors */
+
+    private ClientContext() {}
+
+    /* Getters & Setters */
+
+    public static ClientContext getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the context current on the calling thread, or the default context if no other context exists.
+     *
+     * @throws IllegalStateException if no context is current and several clients exist
+     */
+    public static ClientContext current() {
+        final ClientContext context = current.get();
+
+        if (context != null) {
+            return context;
+        }
+        if (isolated.get() != 0) {
+            throw new IllegalStateException("Several clients exist and none is current on this thread, use SlashClient#runInContext!");
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the context current on the calling thread, or {@code null} if there is none.
+     */
+    public static ClientContext peek() {
+        return current.get();
+    }
+
+    /**
+     * Returns the context current on the calling thread, or the default context. Only meant for checks which neither
+     * encode nor decode anything, like the length of component data.
+     */
+    public static ClientContext currentOrDefault() {
+        final ClientContext context = current.get();
+        return context != null ? context : DEFAULT;
+    }
+
+    public ComponentRegistry getComponentRegistry() {
+        return componentRegistry;
+    }
+
+    public SpillStore getSpillStore() {
+        return spillStore;
+    }
+
+    public Session.Store getSessionStore() {
+        return sessionStore;
+    }
+
+    public boolean isDefault() {
+        return this == DEFAULT;
+    }
+
+    /* Methods */
+
+    /**
+     * Returns the default context if no client owns it yet, or a new isolated context.
+     */
+    public static ClientContext create() {
+        if (claimed.compareAndSet(false, true)) {
+            DEFAULT.released.set(false);
+            return DEFAULT;
+        }
+        isolated.incrementAndGet();
+        return new ClientContext();
+    }
+
+    /**
+     * Releases this context once its client is shut down: its live sessions are dropped without firing their expiry
+     * action, its spilled data is dropped, and an isolated context stops counting as a client (its registry is no longer searched for the tags of
+     * the components sent from outside of any context).
+     */
+    public void release() {
+        if (!released.compareAndSet(false, true)) {
+            return;
+        }
+        sessionStore.clear();
+        spillStore.clear();
+        if (this == DEFAULT) {
+            claimed.set(false);
+        } else {
+            componentRegistry.release();
+            isolated.decrementAndGet();
+        }
+    }
+
+    /**
+     * Makes this context current on the calling thread.
+     *
+     * @return the previously current context, to be given back to {@link #restore(ClientContext)}
+     */
+    public ClientContext enter() {
+        final ClientContext previous = current.get();
+
+        current.set(this);
+        return previous;
+    }
+
+    /**
+     * Returns an action running the given one in the context current on the calling thread, if any, to hand over to
+     * another thread.
+     */
+    public static Runnable bind(Runnable action) {
+        final ClientContext context = current.get();
+        return context == null ? action : () -> context.run(action);
+    }
+
+    public <T> T call(Supplier<T> action) {
+        final ClientContext previous = enter();
+
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public void run(Runnable action) {
+        final ClientContext previous = enter();
+
+        try {
+            action.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public static void restore(ClientContext previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+}
@@ -16,58 +16,141 @@
 
 package net.azzerial.slash.internal;
 
+import net.azzerial.slash.Footprint;
 import net.azzerial.slash.SlashCommand;
 import net.azzerial.slash.annotations.Slash;
+import net.azzerial.slash.internal.util.Footprints;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.interactions.commands.build.CommandData;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public final class CommandRegistry {
 
     private final JDA jda;
-    private final Map<String, SlashCommand> registry = new HashMap<>();
+    private final ComponentRegistry componentRegistry;
     private final AnnotationCompiler annotationCompiler = new AnnotationCompiler();
+    private final Object lock = new Object();
+    // immutable snapshot, replaced as a whole on every (un)registration so readers never need to lock
+    private volatile Map<String, SlashCommand> registry = Collections.emptyMap();
 
     /* Constructors */
 
-    public CommandRegistry(JDA jda) {
+    public CommandRegistry(JDA jda, ComponentRegistry componentRegistry) {
         this.jda = jda;
+        this.componentRegistry = componentRegistry;
     }
 
     /* Getters & Setters */
 
+    public ComponentRegistry getComponentRegistry() {
+        return componentRegistry;
+    }
+
     public SlashCommand getCommand(String tag) {
         return registry.get(tag);
     }
 
     public SlashCommand getCommandById(long id) {
-        return registry.values().stream()
-            .filter(command -> command.getCommandIds().contains(id))
-            .findFirst()
-            .orElse(null);
+        for (SlashCommand command : registry.values()) {
+            if (command.hasCommandId(id)) {
+                return command;
+            }
+        }
+        return null;
+    }
+
+    public SlashCommand getCommandById(long scope, long id) {
+        for (SlashCommand command : registry.values()) {
+            if (command.hasCommandId(scope, id)) {
+                return command;
+            }
+        }
+        return null;
     }
 
     public Collection<SlashCommand> getCommands() {
         return registry.values();
     }
 
+    /**
+     * Estimates the memory retained by the registered commands (their compiled data and handlers) and by their
+     * per-scope command ids.
+     */
+    public List<Footprint.Entry> getFootprint() {
+        final Map<String, SlashCommand> registry = this.registry;
+        long commandsBytes = Footprints.hashMap(registry.size());
+        long instances = 0L;
+        long instancesBytes = 0L;
+
+        for (SlashCommand command : registry.values()) {
+            final Footprint.Entry entry = command.getFootprint();
+
+            commandsBytes += Footprints.object(6, 0) + Footprints.string(command.getTag());
+            commandsBytes += Footprints.value(command.getData().toData().toMap());
+            commandsBytes += Footprints.hashMap(command.getHandlers().size());
+            instances += entry.getCount();
+            instancesBytes += entry.getBytes();
+        }
+        return Arrays.asList(
+            new Footprint.Entry("commands", registry.size(), commandsBytes),
+            new Footprint.Entry("command-instances", instances, instancesBytes)
+        );
+    }
+
     /* Methods */
 
     public SlashCommand registerCommand(Object obj) {
-        final SlashCommand command = compileCommand(obj);
+        synchronized (lock) {
+            final SlashCommand command = compileCommand(obj);
+
+            if (registry.containsKey(command.getTag())) {
+                throw new IllegalArgumentException("Tried to register " + obj.getClass().getSimpleName() + ".class, but the '" + command.getTag() + "' tag was already in use!");
+            }
+            putCommand(command);
+            return command;
+        }
+    }
 
-        ComponentRegistry.getInstance().registerComponent(obj);
-        registry.put(command.getTag(), command);
-        return command;
+    /**
+     * Publishes a compiled command, replacing the command registered under the same tag (and its component callbacks)
+     * if any.
+     *
+     * @return the replaced command, or {@code null}
+     */
+    public SlashCommand putCommand(SlashCommand command) {
+        synchronized (lock) {
+            final Map<String, SlashCommand> snapshot = new HashMap<>(registry);
+            final SlashCommand replaced = snapshot.put(command.getTag(), command);
+
+            componentRegistry.replaceComponent(command.getObjectInstance(), replaced == null ? null : replaced.getObjectInstance());
+            registry = Collections.unmodifiableMap(snapshot);
+            return replaced;
+        }
     }
 
-    /* Internal */
+    public SlashCommand unregisterCommand(String tag) {
+        synchronized (lock) {
+            if (!registry.containsKey(tag)) {
+                return null;
+            }
 
-    private SlashCommand compileCommand(Object obj) {
+            final Map<String, SlashCommand> snapshot = new HashMap<>(registry);
+            final SlashCommand command = snapshot.remove(tag);
+
+            componentRegistry.unregisterComponent(command.getObjectInstance());
+            registry = Collections.unmodifiableMap(snapshot);
+            return command;
+        }
+    }
+
+    public SlashCommand compileCommand(Object obj) {
         final Class<?> cls = obj.getClass();
         final Slash.Tag tag = cls.getAnnotation(Slash.Tag.class);
         final Slash.Command command = cls.getAnnotation(Slash.Command.class);
@@ -78,10 +161,6 @@ public final class CommandRegistry {
         if (command == null) {
             throw new IllegalArgumentException("Provided " + cls.getSimpleName() + ".class is not annotated with @Slash.Command!");
         }
-        if (registry.containsKey(tag.value())) {
-            throw new IllegalArgumentException("Tried to register " + cls.getSimpleName() + ".class, but the '" + tag.value() + "' tag was already in use!");
-        }
-
         final CommandData data = annotationCompiler.compileCommand(command);
         final Map<String, Method> handlers = annotationCompiler.compileHandlers(cls, data);
         return new SlashCommand(jda, tag.value(), data, obj, handlers);
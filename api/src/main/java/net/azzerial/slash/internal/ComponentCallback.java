@@ -20,18 +20,24 @@ import java.lang.reflect.Method;
 
 public final class ComponentCallback {
 
+    private final String tag;
     private final Object obj;
     private final Method method;
 
     /* Constructors */
 
-    ComponentCallback(Object obj, Method method) {
+    ComponentCallback(String tag, Object obj, Method method) {
+        this.tag = tag;
         this.obj = obj;
         this.method = method;
     }
 
     /* Getters & Setters */
 
+    public String getTag() {
+        return tag;
+    }
+
     public Object getObjectInstance() {
         return obj;
     }
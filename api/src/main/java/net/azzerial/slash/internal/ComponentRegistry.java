@@ -16,7 +16,9 @@
 
 package net.azzerial.slash.internal;
 
+import net.azzerial.slash.Footprint;
 import net.azzerial.slash.annotations.Slash;
+import net.azzerial.slash.internal.util.Footprints;
 import net.azzerial.slash.internal.util.UnsignedBase512;
 import net.dv8tion.jda.api.events.interaction.ButtonClickEvent;
 import net.dv8tion.jda.api.events.interaction.SelectionMenuEvent;
@@ -25,13 +27,13 @@ import net.dv8tion.jda.internal.utils.Checks;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Pattern;
 
 public final class ComponentRegistry {
 
     public static final int CODE_LENGTH = 4;
     public static final Pattern ID_PATTERN;
-    private static final ComponentRegistry INSTANCE = new ComponentRegistry();
 
     static {
         StringBuilder sb = new StringBuilder("(");
@@ -45,57 +47,256 @@ public final class ComponentRegistry {
                 sb.append('|');
             }
         }
-        sb.append(")(.)?");
+        sb.append(")(.*)");
 
-        ID_PATTERN = Pattern.compile(sb.toString());
+        ID_PATTERN = Pattern.compile(sb.toString(), Pattern.DOTALL);
     }
 
-    private final List<String> codes;
-    private final Map<String, ComponentCallback> mappings = new HashMap<>();
+    // every registry, to find the client of a component sent from outside of any client context
+    private static final List<ComponentRegistry> registries = new CopyOnWriteArrayList<>();
 
-    /* Constructors */
+    private final SpillStore spillStore;
+    private final Object lock = new Object();
+    // immutable snapshot, replaced as a whole on every (un)registration so readers never need to lock
+    private volatile Snapshot snapshot = new Snapshot(
+        Collections.singletonList(null),
+        Collections.emptyMap(),
+        Collections.emptyMap()
+    );
+    private volatile boolean spilling = false;
+    private volatile ComponentSigner signer = null;
 
-    private ComponentRegistry() {
-        this.codes = new LinkedList<>();
+    /* Constructors */
 
-        codes.add(null);
+    ComponentRegistry(SpillStore spillStore) {
+        this.spillStore = spillStore;
+        registries.add(this);
     }
 
     /* Getters & Setters */
 
+    /**
+     * Returns the registry of the client of which a handler (or {@link ClientContext#run(Runnable)}) is running on the
+     * current thread, or {@code null} if there is none.
+     */
+    public static ComponentRegistry peek() {
+        final ClientContext context = ClientContext.peek();
+        return context == null ? null : context.getComponentRegistry();
+    }
+
+    /**
+     * Returns the maximum length of the data of a component in the current context, or in the default one.
+     */
+    public static int getCurrentMaxDataLength() {
+        return ClientContext.currentOrDefault().getComponentRegistry().getMaxDataLength();
+    }
+
+    /**
+     * Returns the registry of the client of which a handler is running on the current thread, or the one of the
+     * default client otherwise.
+     *
+     * @see ClientContext
+     */
     public static ComponentRegistry getInstance() {
-        return INSTANCE;
+        return ClientContext.current().getComponentRegistry();
+    }
+
+    /**
+     * Returns the registry of the current client or, outside of any client context, the only registry in which the
+     * given tag is registered. Components sent from another thread (a {@code RestAction} callback, a timer...) thus
+     * keep resolving to their client as long as their tag is not shared between clients.
+     *
+     * @throws IllegalStateException if no client context is current, several clients exist and the tag does not
+     *                               designate one of them
+     */
+    public static ComponentRegistry getInstance(String tag) {
+        final ComponentRegistry current = peek();
+
+        if (current != null || tag == null) {
+            return current != null ? current : getInstance();
+        }
+
+        ComponentRegistry found = null;
+
+        for (ComponentRegistry registry : registries) {
+            if (registry.isRegistered(tag)) {
+                if (found != null) {
+                    return getInstance();
+                }
+                found = registry;
+            }
+        }
+        return found != null ? found : getInstance();
+    }
+
+    public boolean isSpilling() {
+        return spilling;
+    }
+
+    /**
+     * Sets whether the data which does not fit in a custom id is moved to the {@link SpillStore}, instead of being
+     * rejected or truncated.
+     */
+    public void setSpilling(boolean spilling) {
+        this.spilling = spilling;
+    }
+
+    public boolean isSigning() {
+        return signer != null;
+    }
+
+    /**
+     * Sets the key with which the component ids are signed, or {@code null} to stop signing them. Once set, only the
+     * ids carrying a valid signature (and which have not expired) resolve to a callback.
+     */
+    public void setSigningKey(byte[] key) {
+        this.signer = key == null ? null : new ComponentSigner(key);
+    }
+
+    /**
+     * Returns the maximum length of the data of a component, which depends on whether oversized data is spilled.
+     */
+    public int getMaxDataLength() {
+        return spilling ? SpillStore.MAX_LENGTH : getMaxInlineLength();
+    }
+
+    /**
+     * Estimates the memory retained by the registered codes (with their reverse index) and by the tag mappings.
+     */
+    public List<Footprint.Entry> getFootprint() {
+        final Snapshot snapshot = this.snapshot;
+        // the first code is reserved for the unregistered tags
+        final int codes = snapshot.codes.size() - 1;
+        long codesBytes = Footprints.object(1, 8) + Footprints.array(snapshot.codes.size(), Footprints.REFERENCE);
+        long mappingsBytes = Footprints.hashMap(snapshot.mappings.size());
+
+        codesBytes += Footprints.hashMap(snapshot.indices.size()) + codes * Footprints.object(0, 4);
+        for (int i = 1; i <= codes; i++) {
+            codesBytes += Footprints.string(snapshot.codes.get(i));
+        }
+        // the tags are shared with the codes and the methods with the reflection cache
+        mappingsBytes += snapshot.mappings.size() * Footprints.object(3, 0);
+        return Arrays.asList(
+            new Footprint.Entry("component-codes", codes, codesBytes),
+            new Footprint.Entry("component-mappings", snapshot.mappings.size(), mappingsBytes)
+        );
     }
 
     public String formatComponentId(String tag, String data) {
-        final int code = codes.indexOf(tag);
-        return String.format(
-            "%-" + CODE_LENGTH + "." + CODE_LENGTH + "s" +
-            "%." + (100 - CODE_LENGTH) + "s",
-            UnsignedBase512.toString(code == -1 ? 0 : code),
-            data == null ? "" : data
-        ).trim();
+        return formatComponentId(tag, data, 0L);
+    }
+
+    /**
+     * Formats the id of a component, which stops resolving to its callback past the given epoch millisecond, or never
+     * if it is {@code 0}. Expiries are only enforced on signed ids.
+     */
+    public String formatComponentId(String tag, String data, long expiresAt) {
+        final ComponentSigner signer = this.signer;
+        final int inline = getMaxInlineLength();
+        final Integer code = snapshot.indices.get(tag);
+        final String codeStr = UnsignedBase512.toString(code == null ? 0 : code);
+        final StringBuilder sb = new StringBuilder(100);
+
+        sb.append(codeStr, 0, Math.min(CODE_LENGTH, codeStr.length()));
+        for (int i = sb.length(); i != CODE_LENGTH; i++) {
+            sb.append(' ');
+        }
+        if (data != null && spilling && (data.length() > inline || (!data.isEmpty() && data.charAt(0) == SpillStore.MARKER))) {
+            sb.append(spillStore.spill(data));
+        } else if (data != null) {
+            sb.append(data, 0, Math.min(inline, data.length()));
+        }
+        if (signer != null) {
+            signer.sign(sb, expiresAt);
+            return sb.toString();
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * Returns the given component id as it was formatted, without its signature and with its spilled data restored,
+     * or {@code null} if its spilled data is not known (anymore).
+     */
+    public String unwrapComponentId(String id) {
+        if (id == null) {
+            return null;
+        }
+        return spillStore.restoreId(signer == null ? id : ComponentSigner.strip(id));
+    }
+
+    /**
+     * Returns whether the data of the given component id was spilled, in which case the id only resolves as long as
+     * the spill store keeps the data.
+     */
+    public static boolean isSpilled(String id) {
+        return id != null && id.length() > CODE_LENGTH && id.charAt(CODE_LENGTH) == SpillStore.MARKER;
+    }
+
+    public Collection<ComponentCallback> getCallbacks() {
+        return snapshot.mappings.values();
+    }
+
+    public boolean isRegistered(String tag) {
+        return snapshot.indices.containsKey(tag);
     }
 
     public ComponentCallback getComponentCallback(String id) {
-        if (!ID_PATTERN.matcher(id).matches()) {
+        final ComponentSigner signer = this.signer;
+
+        // tampered or expired ids are rejected before any handler runs
+        if (!ID_PATTERN.matcher(id).matches() || (signer != null && !signer.verify(id))) {
             return null;
         }
+        final Snapshot snapshot = this.snapshot;
         final int code = UnsignedBase512.parseInt(parseCode(id));
-        final String tag = codes.get(code);
-        return mappings.get(tag);
+
+        if (code >= snapshot.codes.size()) {
+            return null;
+        }
+
+        final String tag = snapshot.codes.get(code);
+        return snapshot.mappings.get(tag);
     }
 
     /* Methods */
 
+    // stops searching this registry for the tags of components, once its client is shut down
+    void release() {
+        registries.remove(this);
+    }
+
     public void registerComponent(Object obj) {
+        replaceComponent(obj, null);
+    }
+
+    /**
+     * Registers the callbacks of an object in place of the ones of another, in a single snapshot swap, so that the
+     * components already sent resolve to the new object from then on.
+     */
+    public void replaceComponent(Object obj, Object replaced) {
         Checks.notNull(obj, "Obj");
-        registerButtons(obj);
-        registerSelectionMenus(obj);
+        synchronized (lock) {
+            final Map<String, ComponentCallback> callbacks = new LinkedHashMap<>();
+
+            registerButtons(obj, callbacks);
+            registerSelectionMenus(obj, callbacks);
+            publish(callbacks, replaced);
+        }
+    }
+
+    public void unregisterComponent(Object obj) {
+        Checks.notNull(obj, "Obj");
+        synchronized (lock) {
+            publish(Collections.emptyMap(), obj);
+        }
     }
 
     /* Internal */
 
+    private int getMaxInlineLength() {
+        return 100 - CODE_LENGTH - (signer == null ? 0 : ComponentSigner.TRAILER_LENGTH);
+    }
+
     private String parseCode(String s) {
         return s == null || s.isEmpty() ?
             null :
@@ -108,7 +309,7 @@ public final class ComponentRegistry {
             s.substring(CODE_LENGTH);
     }
 
-    private void registerButtons(Object obj) {
+    private void registerButtons(Object obj, Map<String, ComponentCallback> callbacks) {
         final Class<?> cls = obj.getClass();
 
         Arrays.stream(cls.getDeclaredMethods())
@@ -123,12 +324,12 @@ public final class ComponentRegistry {
                 final String tag = method.getAnnotation(Slash.Button.class).value();
 
                 if (!tag.isEmpty()) {
-                    registerComponentMapping(tag, new ComponentCallback(obj, method));
+                    callbacks.putIfAbsent(tag, new ComponentCallback(tag, obj, method));
                 }
             });
     }
 
-    private void registerSelectionMenus(Object obj) {
+    private void registerSelectionMenus(Object obj, Map<String, ComponentCallback> callbacks) {
         final Class<?> cls = obj.getClass();
 
         Arrays.stream(cls.getDeclaredMethods())
@@ -143,15 +344,52 @@ public final class ComponentRegistry {
                 final String tag = method.getAnnotation(Slash.SelectionMenu.class).value();
 
                 if (!tag.isEmpty()) {
-                    registerComponentMapping(tag, new ComponentCallback(obj, method));
+                    callbacks.putIfAbsent(tag, new ComponentCallback(tag, obj, method));
                 }
             });
     }
 
-    private void registerComponentMapping(String tag, ComponentCallback callback) {
-        if (!codes.contains(tag)) {
-            codes.add(tag);
+    private void publish(Map<String, ComponentCallback> added, Object removed) {
+        final Snapshot current = this.snapshot;
+        final List<String> codes = new ArrayList<>(current.codes);
+        final Map<String, Integer> indices = new HashMap<>(current.indices);
+        final Map<String, ComponentCallback> mappings = new HashMap<>(current.mappings);
+
+        if (removed != null) {
+            // codes are kept so that the components already sent keep resolving to the same tag
+            mappings.values().removeIf(callback -> callback.getObjectInstance() == removed);
+        }
+        added.forEach((tag, callback) -> {
+            if (mappings.containsKey(tag)) {
+                return;
+            }
+            if (!indices.containsKey(tag)) {
+                indices.put(tag, codes.size());
+                codes.add(tag);
+            }
             mappings.put(tag, callback);
+        });
+        this.snapshot = new Snapshot(
+            Collections.unmodifiableList(codes),
+            Collections.unmodifiableMap(indices),
+            Collections.unmodifiableMap(mappings)
+        );
+    }
+
+    /* Nested Classes */
+
+    private static final class Snapshot {
+
+        private final List<String> codes;
+        private final Map<String, Integer> indices;
+        private final Map<String, ComponentCallback> mappings;
+
+        /* Constructors */
+
+        private Snapshot(List<String> codes, Map<String, Integer> indices, Map<String, ComponentCallback> mappings) {
+            this.codes = codes;
+            this.indices = indices;
+            this.mappings = mappings;
         }
     }
 }
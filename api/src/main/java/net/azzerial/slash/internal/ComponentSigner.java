@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal;
+
+import net.azzerial.slash.internal.util.UnsignedBase512;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * Signs component ids so that any node sharing the key can verify them without a shared store.
+ *
+ * <p>A signed id ends with a trailer made of a {@value #EXPIRY_LENGTH} characters expiry (in epoch seconds,
+ * {@code 0} meaning none) followed by a {@value #MAC_LENGTH} characters truncated HMAC-SHA256 of everything before
+ * it.</p>
+ */
+public final class ComponentSigner {
+
+    public static final int EXPIRY_LENGTH = 5;
+    public static final int MAC_LENGTH = 6;
+    public static final int TRAILER_LENGTH = EXPIRY_LENGTH + MAC_LENGTH;
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    // Mac instances are not thread-safe, each thread reuses its own along with its output buffer
+    private final ThreadLocal<State> state;
+
+    /* Constructors */
+
+    public ComponentSigner(byte[] key) {
+        this.key = new SecretKeySpec(Arrays.copyOf(key, key.length), ALGORITHM);
+        this.state = ThreadLocal.withInitial(() -> new State(this.key));
+        state.get();
+    }
+
+    /* Methods */
+
+    /**
+     * Appends the trailer to the given unsigned id.
+     */
+    public void sign(StringBuilder sb, long expiresAt) {
+        sb.append(UnsignedBase512.toString(Math.max(0L, expiresAt / 1000L), EXPIRY_LENGTH));
+        sb.append(UnsignedBase512.toString(mac(sb, sb.length()), MAC_LENGTH));
+    }
+
+    /**
+     * Returns whether the id carries a valid signature and has not expired.
+     */
+    public boolean verify(String id) {
+        if (id.length() < TRAILER_LENGTH) {
+            return false;
+        }
+
+        final int end = id.length() - MAC_LENGTH;
+        final long mac;
+        final long expiry;
+
+        try {
+            mac = UnsignedBase512.parseLong(id, end, id.length());
+            expiry = UnsignedBase512.parseLong(id, end - EXPIRY_LENGTH, end);
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return false;
+        }
+
+        // compares every bit regardless of where the first difference is
+        if ((mac(id, end) ^ mac) != 0L) {
+            return false;
+        }
+        return expiry == 0L || System.currentTimeMillis() / 1000L <= expiry;
+    }
+
+    /**
+     * Returns the id without its trailer.
+     */
+    public static String strip(String id) {
+        return id.length() < TRAILER_LENGTH ? id : id.substring(0, id.length() - TRAILER_LENGTH);
+    }
+
+    /* Internal */
+
+    private long mac(CharSequence s, int length) {
+        final State state = this.state.get();
+        final Mac mac = state.mac;
+
+        for (int i = 0; i != length; i++) {
+            final char c = s.charAt(i);
+
+            mac.update((byte) (c >>> 8));
+            mac.update((byte) c);
+        }
+        try {
+            mac.doFinal(state.out, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+
+        long value = 0L;
+
+        for (int i = 0; i != Long.BYTES; i++) {
+            value = (value << 8) | (state.out[i] & 0xFFL);
+        }
+        return value >>> (Long.SIZE - MAC_LENGTH * 9);
+    }
+
+    /* Nested Classes */
+
+    private static final class State {
+
+        private final Mac mac;
+        private final byte[] out;
+
+        /* Constructors */
+
+        private State(SecretKeySpec key) {
+            try {
+                this.mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Could not initialize " + ALGORITHM, e);
+            }
+            this.out = new byte[mac.getMacLength()];
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal;
+
+import net.azzerial.slash.AgeHistogram;
+import net.azzerial.slash.SlashClient;
+import net.azzerial.slash.annotations.ExecutionOrder;
+import net.azzerial.slash.annotations.Priority;
+import net.azzerial.slash.annotations.Slash;
+import net.dv8tion.jda.api.entities.AbstractChannel;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.interaction.GenericComponentInteractionCreateEvent;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+public final class Dispatcher {
+
+    // the epoch of the Discord snowflakes, in milliseconds
+    private static final long DISCORD_EPOCH = 1420070400000L;
+    private static final Logger logger = LoggerFactory.getLogger(SlashClient.class);
+    private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, Object.class, GenericInteractionCreateEvent.class);
+    private static final MethodHandle IS_LIVE;
+    private static final MethodHandle SKIP = MethodHandles.dropArguments(
+        MethodHandles.constant(Object.class, null), 0, Object.class, GenericInteractionCreateEvent.class
+    ).asType(HANDLER_TYPE);
+
+    static {
+        try {
+            IS_LIVE = MethodHandles.lookup().findStatic(
+                Dispatcher.class,
+                "isLive",
+                MethodType.methodType(boolean.class, Object.class, GenericInteractionCreateEvent.class)
+            );
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ClientContext context;
+    private final HandlerWatchdog watchdog;
+    private final ExecutorService pool;
+    private final PriorityScheduler scheduler;
+    private final KeyedExecutor[] lanes;
+    private final Map<Method, ExecutionOrder> orders = new ConcurrentHashMap<>();
+    private final Map<Method, Priority> priorities = new ConcurrentHashMap<>();
+    private final Map<Method, MethodHandle> handles = new ConcurrentHashMap<>();
+    private final long deadline;
+    private final Consumer<GenericInteractionCreateEvent> shedHandler;
+    private final AgeHistogram ages = new AgeHistogram();
+    private final LongAdder shed = new LongAdder();
+
+    /* Constructors */
+
+    public Dispatcher(ClientContext context, HandlerWatchdog watchdog) {
+        this(context, watchdog, null);
+    }
+
+    /**
+     * @param context the context of the client, made current while its handlers run
+     * @param pool the pool on which the handlers are run, or {@code null} to run them on the event thread
+     */
+    public Dispatcher(ClientContext context, HandlerWatchdog watchdog, ExecutorService pool) {
+        this(context, watchdog, pool, 0L, null, 0L);
+    }
+
+    /**
+     * @param deadline the age in milliseconds past which an interaction is no longer handled, or {@code 0} for none
+     * @param shedHandler the action run instead of the handler of such an interaction, or {@code null} for none
+     * @param starvationThreshold the wait in milliseconds past which a queued handler runs first whatever its priority,
+     *                            or {@code 0} for none
+     */
+    public Dispatcher(ClientContext context, HandlerWatchdog watchdog, ExecutorService pool, long deadline, Consumer<GenericInteractionCreateEvent> shedHandler, long starvationThreshold) {
+        this.context = context;
+        this.watchdog = watchdog;
+        this.pool = pool;
+        this.scheduler = pool == null ? null : new PriorityScheduler(pool, starvationThreshold);
+        this.lanes = new KeyedExecutor[Priority.values().length];
+        if (scheduler != null) {
+            for (Priority priority : Priority.values()) {
+                if (priority != Priority.DEFAULT) {
+                    lanes[priority.ordinal()] = new KeyedExecutor(scheduler.getLane(priority));
+                }
+            }
+        }
+        this.deadline = deadline;
+        this.shedHandler = shedHandler;
+    }
+
+    /* Getters & Setters */
+
+    public AgeHistogram getAges() {
+        return ages;
+    }
+
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    /* Methods */
+
+    /**
+     * Stops watching the handlers. The handler pool belongs to the caller and is left running.
+     */
+    public void shutdown() {
+        watchdog.close();
+    }
+
+    public void dispatch(String path, Object obj, Method method, GenericInteractionCreateEvent event) {
+        dispatch(path, obj, method, event, true);
+    }
+
+    /**
+     * @param live whether the interaction was just received, replayed ones are neither measured nor shed
+     */
+    public void dispatch(String path, Object obj, Method method, GenericInteractionCreateEvent event, boolean live) {
+        if (pool == null) {
+            run(path, obj, method, event, live);
+            return;
+        }
+
+        final ExecutionOrder order = getOrder(obj, method);
+        final Priority priority = getPriority(obj, method);
+        final Runnable task = () -> run(path, obj, method, event, live);
+
+        if (order == ExecutionOrder.UNORDERED) {
+            scheduler.getLane(priority).execute(task);
+        } else {
+            lanes[priority.ordinal()].execute(getKey(order, event), task);
+        }
+    }
+
+    /**
+     * Runs the dispatch path of a handler without running the handler itself: its ordering and priority are resolved,
+     * the client context is entered, the watchdog is started and the method handle of the handler is invoked without
+     * an event, which its guard turns away before the handler is called. Nothing is queued on the handler pool nor
+     * recorded in the age histogram.
+     */
+    public void dryRun(String path, Object obj, Method method) {
+        getOrder(obj, method);
+        getPriority(obj, method);
+
+        final HandlerWatchdog.Invocation invocation = watchdog.start(path, method);
+        final ClientContext previous = context.enter();
+
+        try {
+            getHandle(method).invokeExact(obj, (GenericInteractionCreateEvent) null);
+        } catch (Throwable ignored) {
+        } finally {
+            ClientContext.restore(previous);
+            watchdog.finish(invocation);
+        }
+    }
+
+    /* Internal */
+
+    private static boolean isLive(Object obj, GenericInteractionCreateEvent event) {
+        return event != null;
+    }
+
+    // the handler, guarded so that a dry run (without an event) goes through the same handle without calling it
+    private MethodHandle getHandle(Method method) throws IllegalAccessException {
+        MethodHandle handle = handles.get(method);
+
+        if (handle == null) {
+            handle = MethodHandles.guardWithTest(IS_LIVE, MethodHandles.lookup().unreflect(method).asType(HANDLER_TYPE), SKIP);
+
+            final MethodHandle current = handles.putIfAbsent(method, handle);
+
+            if (current != null) {
+                handle = current;
+            }
+        }
+        return handle;
+    }
+
+    private void run(String path, Object obj, Method method, GenericInteractionCreateEvent event, boolean live) {
+        if (live) {
+            // measured when the handler is about to run, after any time spent queued
+            final long age = Math.max(0L, System.currentTimeMillis() - ((event.getIdLong() >>> 22) + DISCORD_EPOCH));
+
+            ages.record(age);
+            if (deadline != 0L && age > deadline) {
+                shed(event);
+                return;
+            }
+        }
+        invoke(path, obj, method, event);
+    }
+
+    private void shed(GenericInteractionCreateEvent event) {
+        shed.increment();
+        if (shedHandler == null) {
+            return;
+        }
+
+        final ClientContext previous = context.enter();
+
+        try {
+            shedHandler.accept(event);
+        } catch (RuntimeException e) {
+            logger.error("The shed handler failed", e);
+        } finally {
+            ClientContext.restore(previous);
+        }
+    }
+
+    private void invoke(String path, Object obj, Method method, GenericInteractionCreateEvent event) {
+        final HandlerWatchdog.Invocation invocation = watchdog.start(path, method);
+        final ClientContext previous = context.enter();
+
+        try {
+            getHandle(method).invokeExact(obj, event);
+        } catch (Throwable e) {
+            watchdog.fail(invocation, e);
+        } finally {
+            ClientContext.restore(previous);
+            watchdog.finish(invocation);
+        }
+    }
+
+    private ExecutionOrder getOrder(Object obj, Method method) {
+        return orders.computeIfAbsent(method, m -> {
+            if (m.isAnnotationPresent(Slash.Button.class)) {
+                return m.getAnnotation(Slash.Button.class).order();
+            } else if (m.isAnnotationPresent(Slash.SelectionMenu.class)) {
+                return m.getAnnotation(Slash.SelectionMenu.class).order();
+            } else if (obj.getClass().isAnnotationPresent(Slash.Command.class)) {
+                return obj.getClass().getAnnotation(Slash.Command.class).order();
+            }
+            return ExecutionOrder.UNORDERED;
+        });
+    }
+
+    private Priority getPriority(Object obj, Method method) {
+        return priorities.computeIfAbsent(method, m -> {
+            if (m.isAnnotationPresent(Slash.Button.class)) {
+                return resolve(m.getAnnotation(Slash.Button.class).priority(), Priority.HIGH);
+            } else if (m.isAnnotationPresent(Slash.SelectionMenu.class)) {
+                return resolve(m.getAnnotation(Slash.SelectionMenu.class).priority(), Priority.HIGH);
+            }
+
+            final Priority command = obj.getClass().isAnnotationPresent(Slash.Command.class) ?
+                resolve(obj.getClass().getAnnotation(Slash.Command.class).priority(), Priority.NORMAL) :
+                Priority.NORMAL;
+
+            return m.isAnnotationPresent(Slash.Handler.class) ?
+                resolve(m.getAnnotation(Slash.Handler.class).priority(), command) :
+                command;
+        });
+    }
+
+    private static Priority resolve(Priority priority, Priority fallback) {
+        return priority == Priority.DEFAULT ? fallback : priority;
+    }
+
+    private static long getKey(ExecutionOrder order, GenericInteractionCreateEvent event) {
+        final long id;
+
+        switch (order) {
+        case GUILD:
+            final Guild guild = event.getGuild();
+
+            id = guild != null ? guild.getIdLong() : getChannelId(event);
+            break;
+        case CHANNEL:
+            id = getChannelId(event);
+            break;
+        case USER:
+            id = event.getUser().getIdLong();
+            break;
+        case MESSAGE:
+            id = event instanceof GenericComponentInteractionCreateEvent ?
+                ((GenericComponentInteractionCreateEvent) event).getMessageIdLong() :
+                getChannelId(event);
+            break;
+        default:
+            id = event instanceof GenericComponentInteractionCreateEvent ?
+                ((GenericComponentInteractionCreateEvent) event).getMessageIdLong() * 31 + event.getUser().getIdLong() :
+                event.getUser().getIdLong();
+            break;
+        }
+        // keeps the keys of the different orders apart
+        return id * 0x9E3779B97F4A7C15L + order.ordinal();
+    }
+
+    private static long getChannelId(GenericInteractionCreateEvent event) {
+        final AbstractChannel channel = event.getChannel();
+        return channel == null ? 0L : channel.getIdLong();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * Verifies the Ed25519 signatures of the interactions Discord sends to an HTTP endpoint.
+ *
+ * <p>The signature covers the {@code X-Signature-Timestamp} header followed by the raw request body. Ed25519 is looked
+ * up from the JCA providers, which ship it from Java 15 onwards.</p>
+ */
+public final class Ed25519Verifier {
+
+    public static final String ALGORITHM = "Ed25519";
+    public static final int KEY_LENGTH = 32;
+    public static final int SIGNATURE_LENGTH = 64;
+
+    // the DER prefix of an X.509 SubjectPublicKeyInfo holding a raw Ed25519 key
+    private static final byte[] X509_PREFIX = {0x30, 0x2A, 0x30, 0x05, 0x06, 0x03, 0x2B, 0x65, 0x70, 0x03, 0x21, 0x00};
+
+    private final PublicKey key;
+    // Signature instances are not thread-safe
+    private final ThreadLocal<Signature> signature;
+
+    /* Constructors */
+
+    /**
+     * @param publicKey the hex-encoded public key of the application, as shown in the developer portal
+     */
+    public Ed25519Verifier(String publicKey) {
+        final byte[] raw = parseHex(publicKey);
+
+        if (raw == null || raw.length != KEY_LENGTH) {
+            throw new IllegalArgumentException("The public key must be " + KEY_LENGTH + " hex-encoded bytes!");
+        }
+
+        final byte[] encoded = new byte[X509_PREFIX.length + KEY_LENGTH];
+
+        System.arraycopy(X509_PREFIX, 0, encoded, 0, X509_PREFIX.length);
+        System.arraycopy(raw, 0, encoded, X509_PREFIX.length, KEY_LENGTH);
+        try {
+            this.key = KeyFactory.getInstance(ALGORITHM).generatePublic(new X509EncodedKeySpec(encoded));
+            Signature.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Ed25519 is not supported by this JVM, Java 15 or later is required!", e);
+        }
+        this.signature = ThreadLocal.withInitial(() -> {
+            try {
+                return Signature.getInstance(ALGORITHM);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /* Methods */
+
+    public boolean verify(String signature, String timestamp, byte[] body) {
+        final byte[] raw = parseHex(signature);
+
+        if (raw == null || raw.length != SIGNATURE_LENGTH || timestamp == null) {
+            return false;
+        }
+
+        final Signature verifier = this.signature.get();
+
+        try {
+            verifier.initVerify(key);
+            verifier.update(timestamp.getBytes(StandardCharsets.UTF_8));
+            verifier.update(body);
+            return verifier.verify(raw);
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parses a hex string, or returns {@code null} if it is not one.
+     */
+    public static byte[] parseHex(String s) {
+        if (s == null || (s.length() & 1) != 0) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[s.length() >> 1];
+
+        for (int i = 0; i != bytes.length; i++) {
+            final int high = Character.digit(s.charAt(i << 1), 16);
+            final int low = Character.digit(s.charAt((i << 1) + 1), 16);
+
+            if (high == -1 || low == -1) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs expiry actions off the timer thread.
+ *
+ * <p>Actions are grouped by channel: the actions of a channel which expire while a batch of that channel is already
+ * pending join that batch, so a mass expiry costs one task per channel instead of one per session. Batches are run on a
+ * bounded pool of daemon threads.</p>
+ */
+public final class ExpiryQueue {
+
+    public static final int DEFAULT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private final ExecutorService threadpool;
+    private final Map<Long, List<Runnable>> batches = new ConcurrentHashMap<>();
+
+    /* Constructors */
+
+    public ExpiryQueue() {
+        this(DEFAULT_THREADS);
+    }
+
+    public ExpiryQueue(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadPoolExecutor threadpool = new ThreadPoolExecutor(
+            threads, threads,
+            60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> {
+                final Thread thread = new Thread(r, "Slash-Expiry-" + count.incrementAndGet());
+
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+
+        threadpool.allowCoreThreadTimeOut(true);
+        this.threadpool = threadpool;
+    }
+
+    /* Methods */
+
+    public void submit(long channelId, Runnable action) {
+        final List<Runnable> created = new ArrayList<>(1);
+        final List<Runnable> batch = batches.compute(channelId, (id, current) -> {
+            final List<Runnable> list = current != null ? current : created;
+
+            list.add(action);
+            return list;
+        });
+
+        if (batch == created) {
+            threadpool.execute(() -> run(batches.remove(channelId)));
+        }
+    }
+
+    /* Internal */
+
+    private void run(List<Runnable> batch) {
+        for (Runnable action : batch) {
+            try {
+                action.run();
+            } catch (RuntimeException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal;
+
+import net.azzerial.slash.HandlerReport;
+import net.azzerial.slash.annotations.Slash;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public final class HandlerWatchdog {
+
+    public static final long SCAN_PERIOD = 50L;
+
+    private static final ScheduledExecutorService threadpool = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "Slash-Watchdog");
+
+        thread.setDaemon(true);
+        return thread;
+    });
+    // the watchdogs are scanned by a single task, and dropped once their client is no longer reachable
+    private static final Set<HandlerWatchdog> watchdogs = Collections.newSetFromMap(new WeakHashMap<>());
+
+    static {
+        threadpool.scheduleAtFixedRate(HandlerWatchdog::scanAll, SCAN_PERIOD, SCAN_PERIOD, TimeUnit.MILLISECONDS);
+    }
+
+    private final long threshold;
+    private final Consumer<HandlerReport> reporter;
+    private final Set<Invocation> invocations = ConcurrentHashMap.newKeySet();
+    private final Map<Method, Long> thresholds = new ConcurrentHashMap<>();
+
+    /* Constructors */
+
+    public HandlerWatchdog(long threshold, Consumer<HandlerReport> reporter) {
+        this.threshold = threshold;
+        this.reporter = reporter;
+        synchronized (watchdogs) {
+            watchdogs.add(this);
+        }
+    }
+
+    /* Methods */
+
+    public Invocation start(String path, Method method) {
+        final Invocation invocation = new Invocation(path, method, Thread.currentThread(), getThreshold(method));
+
+        invocations.add(invocation);
+        return invocation;
+    }
+
+    public void fail(Invocation invocation, Throwable throwable) {
+        report(new HandlerReport(
+            HandlerReport.Type.FAILURE,
+            invocation.path,
+            invocation.method,
+            invocation.thread.getName(),
+            invocation.elapsed(),
+            throwable.getStackTrace(),
+            throwable
+        ));
+    }
+
+    public void finish(Invocation invocation) {
+        invocations.remove(invocation);
+    }
+
+    /**
+     * Stops scanning the invocations of this watchdog.
+     */
+    public void close() {
+        synchronized (watchdogs) {
+            watchdogs.remove(this);
+        }
+    }
+
+    /* Internal */
+
+    private long getThreshold(Method method) {
+        return thresholds.computeIfAbsent(method, m -> {
+            long threshold = -1L;
+
+            if (m.isAnnotationPresent(Slash.Handler.class)) {
+                threshold = m.getAnnotation(Slash.Handler.class).threshold();
+            } else if (m.isAnnotationPresent(Slash.Button.class)) {
+                threshold = m.getAnnotation(Slash.Button.class).threshold();
+            } else if (m.isAnnotationPresent(Slash.SelectionMenu.class)) {
+                threshold = m.getAnnotation(Slash.SelectionMenu.class).threshold();
+            }
+            return threshold < 0 ? this.threshold : threshold;
+        });
+    }
+
+    private static void scanAll() {
+        final List<HandlerWatchdog> live;
+
+        synchronized (watchdogs) {
+            live = new ArrayList<>(watchdogs);
+        }
+        for (HandlerWatchdog watchdog : live) {
+            watchdog.scan();
+        }
+    }
+
+    private void scan() {
+        for (Invocation invocation : invocations) {
+            final long elapsed = invocation.elapsed();
+
+            if (invocation.reported || elapsed < invocation.threshold) {
+                continue;
+            }
+            invocation.reported = true;
+
+            final StackTraceElement[] stackTrace = invocation.thread.getStackTrace();
+
+            // the invocation may have completed while the thread was being sampled
+            if (invocations.contains(invocation)) {
+                report(new HandlerReport(
+                    HandlerReport.Type.SLOW,
+                    invocation.path,
+                    invocation.method,
+                    invocation.thread.getName(),
+                    elapsed,
+                    stackTrace,
+                    null
+                ));
+            }
+        }
+    }
+
+    private void report(HandlerReport report) {
+        try {
+            reporter.accept(report);
+        } catch (RuntimeException ignored) {}
+    }
+
+    /* Nested Classes */
+
+    public static final class Invocation {
+
+        private final String path;
+        private final Method method;
+        private final Thread thread;
+        private final long threshold;
+        private final long start = System.nanoTime();
+        private volatile boolean reported = false;
+
+        /* Constructors */
+
+        private Invocation(String path, Method method, Thread thread, long threshold) {
+            this.path = path;
+            this.method = method;
+            this.thread = thread;
+            this.threshold = threshold;
+        }
+
+        /* Internal */
+
+        private long elapsed() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+}
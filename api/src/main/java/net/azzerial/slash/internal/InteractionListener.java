@@ -16,59 +16,164 @@
 
 package net.azzerial.slash.internal;
 
+import net.azzerial.slash.InteractionRecord;
+import net.azzerial.slash.InteractionRecorder;
+import net.azzerial.slash.SlashClient;
 import net.azzerial.slash.SlashCommand;
+import net.azzerial.slash.internal.util.DuplicateFilter;
+import net.dv8tion.jda.api.events.GenericEvent;
 import net.dv8tion.jda.api.events.interaction.GenericComponentInteractionCreateEvent;
+import net.dv8tion.jda.api.events.interaction.GenericInteractionCreateEvent;
 import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
-import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.hooks.EventListener;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.InvocationTargetException;
+import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
 
-public final class InteractionListener extends ListenerAdapter {
+public final class InteractionListener implements EventListener {
+
+    private static final int FILTER_CAPACITY = 8192;
+    private static final Logger logger = LoggerFactory.getLogger(SlashClient.class);
 
     private final CommandRegistry registry;
+    private final Dispatcher dispatcher;
+    private final DuplicateFilter interactionFilter;
+    private final DuplicateFilter clickFilter;
+    private volatile InteractionRecorder recorder = null;
 
     /* Constructors */
 
-    public InteractionListener(CommandRegistry registry) {
+    public InteractionListener(CommandRegistry registry, Dispatcher dispatcher, long duplicateWindow, boolean filterClicks) {
         this.registry = registry;
+        this.dispatcher = dispatcher;
+        this.interactionFilter = duplicateWindow > 0 ?
+            new DuplicateFilter(FILTER_CAPACITY, duplicateWindow, TimeUnit.MILLISECONDS) :
+            null;
+        this.clickFilter = duplicateWindow > 0 && filterClicks ?
+            new DuplicateFilter(FILTER_CAPACITY, duplicateWindow, TimeUnit.MILLISECONDS) :
+            null;
+    }
+
+    /* Getters & Setters */
+
+    public InteractionRecorder getRecorder() {
+        return recorder;
+    }
+
+    public void setRecorder(InteractionRecorder recorder) {
+        this.recorder = recorder;
     }
 
     /* Methods */
 
     @Override
-    public void onSlashCommand(SlashCommandEvent event) {
-        if (event.getUser().isBot()) {
+    public void onEvent(@NotNull GenericEvent event) {
+        if (event instanceof SlashCommandEvent) {
+            onSlashCommand((SlashCommandEvent) event);
+        } else if (event instanceof GenericComponentInteractionCreateEvent) {
+            onComponentInteraction((GenericComponentInteractionCreateEvent) event);
+        }
+    }
+
+    /**
+     * Resolves the handler of a recorded interaction and, if an event is given, dispatches it. The duplicate filters
+     * and the recorder are bypassed.
+     *
+     * @return whether the handler of the interaction was found
+     */
+    public boolean replay(InteractionRecord record, GenericInteractionCreateEvent event) {
+        final String path;
+        final Object obj;
+        final Method method;
+
+        if (record.getType() == InteractionRecord.Type.SLASH_COMMAND) {
+            final long scope = record.getGuildId() != 0L ? record.getGuildId() : SlashCommand.GLOBAL;
+            final SlashCommand command = registry.getCommandById(scope, record.getCommandId());
+
+            if (command == null) {
+                return false;
+            }
+            path = record.getPath();
+            obj = command.getObjectInstance();
+            method = command.getHandlers().get(path);
+        } else {
+            final ComponentCallback callback = registry.getComponentRegistry().getComponentCallback(record.getPath());
+
+            if (callback == null) {
+                return false;
+            }
+            path = callback.getTag();
+            obj = callback.getObjectInstance();
+            method = callback.getMethod();
+        }
+        if (method == null) {
+            return false;
+        }
+        if (event != null) {
+            dispatcher.dispatch(path, obj, method, event, false);
+        }
+        return true;
+    }
+
+    /* Internal */
+
+    private void onSlashCommand(SlashCommandEvent event) {
+        if (event.getUser().isBot() || isReplayed(event.getIdLong())) {
             return;
         }
 
-        final SlashCommand command = registry.getCommandById(event.getCommandIdLong());
+        final long scope = event.getGuild() != null ? event.getGuild().getIdLong() : SlashCommand.GLOBAL;
+        final SlashCommand command = registry.getCommandById(scope, event.getCommandIdLong());
 
         if (command != null) {
             final Method method = command.getHandlers().get(event.getCommandPath());
 
             if (method != null) {
-                try {
-                    method.invoke(command.getObjectInstance(), event);
-                } catch (IllegalAccessException | InvocationTargetException ignored) {}
+                record(event);
+                dispatcher.dispatch(event.getCommandPath(), command.getObjectInstance(), method, event);
             }
         }
     }
 
-    @Override
-    public void onGenericComponentInteractionCreate(GenericComponentInteractionCreateEvent event) {
-        if (event.getUser().isBot()) {
+    private void onComponentInteraction(GenericComponentInteractionCreateEvent event) {
+        if (event.getUser().isBot() || isReplayed(event.getIdLong()) || isRepeatedClick(event)) {
             return;
         }
 
-        final ComponentCallback callback = ComponentRegistry.getInstance().getComponentCallback(event.getComponentId());
+        final ComponentCallback callback = registry.getComponentRegistry().getComponentCallback(event.getComponentId());
 
         if (callback != null) {
-            final Method method = callback.getMethod();
+            record(event);
+            dispatcher.dispatch(callback.getTag(), callback.getObjectInstance(), callback.getMethod(), event);
+        }
+    }
+
+    private void record(GenericInteractionCreateEvent event) {
+        final InteractionRecorder recorder = this.recorder;
 
-            try {
-                method.invoke(callback.getObjectInstance(), event);
-            } catch (IllegalAccessException | InvocationTargetException ignored) {}
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.record(event);
+        } catch (IOException e) {
+            // a failing log must not get in the way of the dispatch
+            this.recorder = null;
+            logger.error("Could not record the interaction, the recorder has been detached", e);
         }
     }
+
+    private boolean isReplayed(long interactionId) {
+        return interactionFilter != null && !interactionFilter.accept(interactionId);
+    }
+
+    private boolean isRepeatedClick(GenericComponentInteractionCreateEvent event) {
+        return clickFilter != null && !clickFilter.accept(
+            DuplicateFilter.hash(event.getUser().getIdLong(), event.getMessageIdLong(), event.getComponentId())
+        );
+    }
 }
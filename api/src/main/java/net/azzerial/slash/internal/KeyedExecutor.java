@@ -0,0 +1,124 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the tasks of a same key one at a time and in submission order, on a shared executor.
+ *
+ * <p>Each active key owns a lane: a queue drained by at most one task of the executor at a time, so unrelated keys run
+ * in parallel. A lane is dropped as soon as it is drained, idle keys thus cost no memory. To stay fair to the other
+ * lanes, a busy lane yields its thread back to the executor every {@value #BATCH_SIZE} tasks.</p>
+ *
+ * <p>If the executor rejects a lane, the lane is dropped with its queued tasks and the rejection is rethrown, so that
+ * the key is not left with a lane which would never run again.</p>
+ */
+public final class KeyedExecutor {
+
+    private static final int BATCH_SIZE = 32;
+
+    private final Executor executor;
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    /* Constructors */
+
+    public KeyedExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /* Getters & Setters */
+
+    public int getActiveKeys() {
+        return lanes.size();
+    }
+
+    /* Methods */
+
+    public void execute(long key, Runnable task) {
+        final Lane created = new Lane(key);
+        final Lane lane = lanes.compute(key, (k, current) -> {
+            final Lane l = current != null ? current : created;
+
+            l.tasks.add(task);
+            return l;
+        });
+
+        if (lane == created) {
+            submit(lane);
+        }
+    }
+
+    /* Internal */
+
+    private void submit(Lane lane) {
+        try {
+            executor.execute(lane);
+        } catch (RejectedExecutionException e) {
+            lanes.remove(lane.key, lane);
+            throw e;
+        }
+    }
+
+    /* Nested Classes */
+
+    private final class Lane implements Runnable {
+
+        private final long key;
+        // only accessed within the compute of the lanes map, which guards it
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        /* Constructors */
+
+        private Lane(long key) {
+            this.key = key;
+        }
+
+        /* Methods */
+
+        @Override
+        public void run() {
+            for (int i = 0; i != BATCH_SIZE; i++) {
+                final Runnable task = poll();
+
+                if (task == null) {
+                    return;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException ignored) {}
+            }
+            submit(this);
+        }
+
+        private Runnable poll() {
+            final Runnable[] task = new Runnable[1];
+
+            // removes the lane once drained, atomically with respect to the submissions
+            lanes.computeIfPresent(key, (k, lane) -> {
+                task[0] = lane.tasks.poll();
+                return task[0] == null ? null : lane;
+            });
+            return task[0];
+        }
+    }
+}
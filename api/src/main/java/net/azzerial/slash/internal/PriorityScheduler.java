@@ -0,0 +1,206 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal;
+
+import net.azzerial.slash.annotations.Priority;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Shares the threads of an executor between the lanes of the different {@link Priority priorities}.
+ *
+ * <p>The tasks are queued in their lane, and the executor is only handed a token per task: the lane to run is picked
+ * when a thread takes the token, so the order of the executor queue does not matter. The lanes are served by stride
+ * scheduling, a lane of weight {@code w} getting {@code w} turns for every turn of a lane of weight {@code 1} while both
+ * are busy. A lane whose oldest task waited longer than the starvation threshold is granted a single extra turn, after
+ * which it has to wait for its next turn in stride order before being boosted again: a backlog of old tasks thus gets
+ * at most twice its share, and never pushes the other lanes behind it.</p>
+ */
+public final class PriorityScheduler {
+
+    // the pass a lane of weight 1 advances by per turn, a multiple of every weight
+    private static final long STRIDE = 1L << 20;
+
+    private final Executor executor;
+    private final long starvationThreshold;
+    private final Lane[] lanes;
+    private long pass = 0L;
+    // the tasks queued in every lane, and the tokens handed to the executor which no thread has taken yet
+    private int queued = 0;
+    private int tokens = 0;
+
+    /* Constructors */
+
+    /**
+     * @param starvationThreshold the wait in milliseconds past which a task is run first, or {@code 0} for none
+     */
+    public PriorityScheduler(Executor executor, long starvationThreshold) {
+        this.executor = executor;
+        this.starvationThreshold = starvationThreshold * 1_000_000L;
+        this.lanes = new Lane[Priority.values().length];
+        for (Priority priority : Priority.values()) {
+            if (priority != Priority.DEFAULT) {
+                lanes[priority.ordinal()] = new Lane(priority);
+            }
+        }
+    }
+
+    /* Getters & Setters */
+
+    /**
+     * Returns the executor queueing its tasks in the lane of the given priority.
+     */
+    public Executor getLane(Priority priority) {
+        return lanes[priority.ordinal()];
+    }
+
+    public synchronized int getQueued(Priority priority) {
+        return lanes[priority.ordinal()].tasks.size();
+    }
+
+    /* Internal */
+
+    private synchronized void enqueue(Lane lane, Runnable task) {
+        if (lane.tasks.isEmpty()) {
+            // an idle lane does not bank the turns it did not use
+            lane.pass = Math.max(lane.pass, pass);
+            lane.boosted = false;
+        }
+        lane.tasks.add(new Task(task, System.nanoTime()));
+        queued++;
+        // counted before it is handed over, since a thread may take it right away
+        tokens++;
+    }
+
+    // the token of a task was rejected by the executor, so a task is dropped if there are now more tasks than tokens
+    private synchronized void reject(Lane lane, Runnable task) {
+        tokens--;
+        if (queued <= tokens) {
+            return;
+        }
+
+        final Iterator<Task> it = lane.tasks.descendingIterator();
+
+        // the rejected task itself, unless the token of another task already ran it
+        while (it.hasNext()) {
+            if (it.next().runnable == task) {
+                it.remove();
+                queued--;
+                return;
+            }
+        }
+        for (Lane other : lanes) {
+            if (other != null && !other.tasks.isEmpty()) {
+                other.tasks.pollLast();
+                queued--;
+                return;
+            }
+        }
+    }
+
+    private synchronized Runnable poll() {
+        final long now = System.nanoTime();
+        Lane next = null;
+        Lane starved = null;
+
+        for (Lane lane : lanes) {
+            if (lane == null || lane.tasks.isEmpty()) {
+                continue;
+            }
+
+            final long waited = now - lane.tasks.peek().queuedAt;
+
+            if (starvationThreshold != 0L && waited > starvationThreshold && !lane.boosted
+                && (starved == null || waited > now - starved.tasks.peek().queuedAt)) {
+                starved = lane;
+            }
+            if (next == null || lane.pass < next.pass) {
+                next = lane;
+            }
+        }
+        tokens--;
+        if (next == null) {
+            return null;
+        }
+        queued--;
+        if (starved != null && starved != next) {
+            // an extra turn, which leaves the pass of the lane untouched
+            starved.boosted = true;
+            return starved.tasks.poll().runnable;
+        }
+        next.boosted = false;
+        pass = Math.max(pass, next.pass);
+        next.pass += STRIDE / next.priority.getWeight();
+        return next.tasks.poll().runnable;
+    }
+
+    private void runNext() {
+        final Runnable task = poll();
+
+        if (task != null) {
+            task.run();
+        }
+    }
+
+    /* Nested Classes */
+
+    private final class Lane implements Executor {
+
+        private final Priority priority;
+        // guarded by the scheduler
+        private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+        private long pass = 0L;
+        // whether the lane was granted an extra turn since its last turn in stride order
+        private boolean boosted = false;
+
+        /* Constructors */
+
+        private Lane(Priority priority) {
+            this.priority = priority;
+        }
+
+        /* Methods */
+
+        @Override
+        public void execute(Runnable task) {
+            enqueue(this, task);
+            try {
+                executor.execute(PriorityScheduler.this::runNext);
+            } catch (RejectedExecutionException e) {
+                // each queued task must be matched by a token, whichever task the other tokens already ran
+                reject(this, task);
+                throw e;
+            }
+        }
+    }
+
+    private static final class Task {
+
+        private final Runnable runnable;
+        private final long queuedAt;
+
+        /* Constructors */
+
+        private Task(Runnable runnable, long queuedAt) {
+            this.runnable = runnable;
+            this.queuedAt = queuedAt;
+        }
+    }
+}
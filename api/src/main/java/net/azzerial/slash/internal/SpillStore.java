@@ -0,0 +1,259 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal;
+
+import net.azzerial.slash.Footprint;
+import net.azzerial.slash.SlashClient;
+import net.azzerial.slash.internal.util.TinyLfuCache;
+import net.azzerial.slash.internal.util.UnsignedBase512;
+import net.dv8tion.jda.internal.utils.Checks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static net.azzerial.slash.internal.ComponentRegistry.CODE_LENGTH;
+
+/**
+ * Holds the component data which does not fit in a custom id. Every client has its own store, see {@link ClientContext}.
+ *
+ * <p>A spilled payload is replaced by the {@link #MARKER} followed by a 7 characters key. Keys are derived from the
+ * payload itself, so rendering the same component twice does not store it twice. The store is bounded, the payloads
+ * which are the least used are dropped first.</p>
+ *
+ * <p>A fresh payload has not been used yet, so it would lose the admission of the cache to any payload rendered twice.
+ * It is instead pinned for {@link #PIN_TIME} milliseconds (the time its component is the most likely to be used in)
+ * before competing with the others, unless the pinned payloads outgrow half of the budget. The cache gets what the
+ * pinned payloads leave of the budget.</p>
+ */
+public final class SpillStore {
+
+    public static final char MARKER = '\uE000';
+    public static final int KEY_LENGTH = 7;
+    public static final int MAX_LENGTH = 4000;
+    public static final long DEFAULT_BUDGET = 16L * 1024L * 1024L;
+    public static final long PIN_TIME = TimeUnit.MINUTES.toMillis(15L);
+
+    private static final Logger logger = LoggerFactory.getLogger(SlashClient.class);
+
+    // guarded by payloads
+    private final TinyLfuCache<String> payloads = new TinyLfuCache<>(DEFAULT_BUDGET);
+    private long budget = DEFAULT_BUDGET;
+    // fresh payloads by key, in spilling order
+    private final LinkedHashMap<Long, Pinned> pinned = new LinkedHashMap<>();
+    private long pinnedWeight = 0L;
+    private long evictions = 0L;
+
+    /* Constructors */
+
+    SpillStore() {}
+
+    /* Getters & Setters */
+
+    public long getBudget() {
+        synchronized (payloads) {
+            return budget;
+        }
+    }
+
+    /**
+     * Bounds the approximate memory used by the spilled payloads, in bytes. Shrinking the budget drops the least used
+     * payloads right away.
+     */
+    public void setBudget(long bytes) {
+        Checks.positive(bytes, "Bytes");
+        synchronized (payloads) {
+            this.budget = bytes;
+            unpin(System.currentTimeMillis());
+        }
+    }
+
+    public static boolean isSpilled(String data) {
+        return data != null && data.length() == 1 + KEY_LENGTH && data.charAt(0) == MARKER;
+    }
+
+    /* Methods */
+
+    /**
+     * Stores the payload and returns the marked key to embed in its place.
+     */
+    public String spill(String data) {
+        long key = hash(data);
+
+        synchronized (payloads) {
+            final long now = System.currentTimeMillis();
+            String current;
+
+            // probes the next keys on the (unlikely) event of a collision
+            while ((current = get(key)) != null && !current.equals(data)) {
+                key = (key + 1) & Long.MAX_VALUE;
+                if (key == 0L) {
+                    key = 1L;
+                }
+            }
+            if (current == null) {
+                pinned.put(key, new Pinned(data, now));
+                pinnedWeight += weigh(data);
+            } else if (pinned.containsKey(key)) {
+                payloads.recordAccess(key);
+            } else {
+                payloads.put(key, data, weigh(data), this::onEvicted);
+            }
+            unpin(now);
+        }
+        return MARKER + UnsignedBase512.toString(key, KEY_LENGTH);
+    }
+
+    /**
+     * Returns the payload of a spilled data, or {@code null} if it is not known (anymore).
+     */
+    public String restore(String data) {
+        if (!isSpilled(data)) {
+            return data;
+        }
+
+        final long key;
+
+        try {
+            key = UnsignedBase512.parseLong(data, 1, data.length());
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            return null;
+        }
+        synchronized (payloads) {
+            final String payload = get(key);
+
+            if (payload != null) {
+                payloads.recordAccess(key);
+            }
+            return payload;
+        }
+    }
+
+    /**
+     * Returns the given component id with its data restored, or {@code null} if its spilled data is not known
+     * (anymore). Ids with inline data are returned as is.
+     */
+    public String restoreId(String id) {
+        if (id == null || id.length() != CODE_LENGTH + 1 + KEY_LENGTH || id.charAt(CODE_LENGTH) != MARKER) {
+            return id;
+        }
+
+        final String data = restore(id.substring(CODE_LENGTH));
+        return data == null ? null : id.substring(0, CODE_LENGTH) + data;
+    }
+
+    /**
+     * Drops every payload, e.g. once the client is shut down.
+     */
+    public void clear() {
+        synchronized (payloads) {
+            payloads.clear();
+            pinned.clear();
+            pinnedWeight = 0L;
+            payloads.setMaximumWeight(budget, this::onEvicted);
+        }
+    }
+
+    public long getMemoryUsage() {
+        synchronized (payloads) {
+            return payloads.getWeightedSize() + pinnedWeight;
+        }
+    }
+
+    /**
+     * Returns the number of payloads dropped to fit the budget, of which the components can no longer be used.
+     */
+    public long getEvictionCount() {
+        synchronized (payloads) {
+            return evictions;
+        }
+    }
+
+    public Footprint.Entry getFootprint() {
+        synchronized (payloads) {
+            return new Footprint.Entry("spilled-data", payloads.size() + pinned.size(), payloads.getWeightedSize() + pinnedWeight);
+        }
+    }
+
+    /* Internal */
+
+    private String get(long key) {
+        final Pinned pin = pinned.get(key);
+        return pin != null ? pin.data : payloads.get(key);
+    }
+
+    // hands the payloads pinned for long enough (or overflowing the budget) over to the cache
+    private void unpin(long now) {
+        final Iterator<Map.Entry<Long, Pinned>> it = pinned.entrySet().iterator();
+
+        while (it.hasNext()) {
+            final Map.Entry<Long, Pinned> entry = it.next();
+            final Pinned pin = entry.getValue();
+
+            if (now - pin.time < PIN_TIME && pinnedWeight <= budget / 2) {
+                break;
+            }
+            it.remove();
+            pinnedWeight -= weigh(pin.data);
+            payloads.put(entry.getKey(), pin.data, weigh(pin.data), this::onEvicted);
+        }
+        payloads.setMaximumWeight(Math.max(1L, budget - pinnedWeight), this::onEvicted);
+    }
+
+    private void onEvicted(String payload) {
+        evictions++;
+        logger.debug("Dropped a spilled payload of {} characters to fit the budget, {} so far", payload.length(), evictions);
+    }
+
+    private static int weigh(String data) {
+        // object headers and the cache node, plus the UTF-16 characters
+        return 64 + (data.length() << 1);
+    }
+
+    private static long hash(String data) {
+        long h = 0xCBF29CE484222325L;
+
+        for (int i = 0; i != data.length(); i++) {
+            h ^= data.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+
+        h &= Long.MAX_VALUE;
+        return h == 0L ? 1L : h;
+    }
+
+    /* Nested Classes */
+
+    private static final class Pinned {
+
+        private final String data;
+        private final long time;
+
+        /* Constructors */
+
+        private Pinned(String data, long time) {
+            this.data = data;
+            this.time = time;
+        }
+    }
+}
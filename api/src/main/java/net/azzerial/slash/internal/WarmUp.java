@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal;
+
+import net.azzerial.slash.SlashClient;
+import net.azzerial.slash.SlashCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Drives synthetic lookups and dispatches through the paths of every registered handler, so that they are compiled
+ * before the first interactions come in.
+ *
+ * <p>The warm-up runs on a background thread of minimal priority and only reads the registries, JDA keeps handling the
+ * events meanwhile. The handlers themselves are never called.</p>
+ */
+public final class WarmUp {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlashClient.class);
+    private static final String DATA = "warm-up";
+
+    private final CommandRegistry registry;
+    private final Dispatcher dispatcher;
+    private final int iterations;
+    // prevents the results of the lookups from being optimized away
+    private int sink = 0;
+
+    /* Constructors */
+
+    private WarmUp(CommandRegistry registry, Dispatcher dispatcher, int iterations) {
+        this.registry = registry;
+        this.dispatcher = dispatcher;
+        this.iterations = iterations;
+    }
+
+    /* Methods */
+
+    /**
+     * Starts warming up the handlers of a client, the returned future completes with the time the warm-up took.
+     */
+    public static CompletableFuture<Duration> start(CommandRegistry registry, Dispatcher dispatcher, int iterations) {
+        final CompletableFuture<Duration> future = new CompletableFuture<>();
+        final WarmUp warmUp = new WarmUp(registry, dispatcher, iterations);
+        final Thread thread = new Thread(() -> {
+            try {
+                final long start = System.nanoTime();
+
+                warmUp.run();
+
+                final Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+                logger.info("Warmed up the handlers in {} ms ({} iterations)", elapsed.toMillis(), iterations);
+                future.complete(elapsed);
+            } catch (RuntimeException e) {
+                logger.warn("The warm-up of the handlers failed", e);
+                future.completeExceptionally(e);
+            }
+        }, "Slash-WarmUp");
+
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+        return future;
+    }
+
+    /* Internal */
+
+    private void run() {
+        final ComponentRegistry components = registry.getComponentRegistry();
+
+        for (int i = 0; i != iterations; i++) {
+            for (SlashCommand command : registry.getCommands()) {
+                warmUp(command);
+            }
+            for (ComponentCallback callback : components.getCallbacks()) {
+                warmUp(components, callback);
+            }
+        }
+        if (sink == 42) {
+            logger.trace("Warm-up sink: {}", sink);
+        }
+    }
+
+    private void warmUp(SlashCommand command) {
+        // looked up in the scopes the command is registered in, as the live interactions are
+        for (long scope : command.getScopes()) {
+            final SlashCommand resolved = registry.getCommandById(scope, command.getCommandId(scope));
+
+            sink += resolved == null ? 0 : 1;
+        }
+        for (String path : command.getHandlers().keySet()) {
+            final Method method = command.getHandlers().get(path);
+
+            dispatcher.dryRun(path, command.getObjectInstance(), method);
+        }
+    }
+
+    private void warmUp(ComponentRegistry components, ComponentCallback callback) {
+        final String id = components.formatComponentId(callback.getTag(), DATA);
+        final ComponentCallback resolved = components.getComponentCallback(id);
+        final String unwrapped = components.unwrapComponentId(id);
+
+        sink += unwrapped == null ? 0 : unwrapped.length();
+        if (resolved != null) {
+            dispatcher.dryRun(resolved.getTag(), resolved.getObjectInstance(), resolved.getMethod());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free filter of the {@code long} keys seen during a time window.
+ *
+ * <p>Keys are stored with the time they were last seen in a small open-addressing table. When all the probed slots
+ * are still alive the oldest one is overwritten, so the memory cost is constant and an overloaded filter only lets a
+ * few duplicates through, it never rejects a key which was not seen.</p>
+ */
+public final class DuplicateFilter {
+
+    private static final int PROBES = 4;
+
+    private final long window;
+    private final int mask;
+    private final AtomicLongArray keys;
+    private final AtomicLongArray times;
+
+    /* Constructors */
+
+    public DuplicateFilter(int capacity, long window, TimeUnit unit) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        final int size = Integer.highestOneBit(Math.max(PROBES, capacity - 1) << 1);
+
+        this.window = unit.toNanos(window);
+        this.mask = size - 1;
+        this.keys = new AtomicLongArray(size);
+        this.times = new AtomicLongArray(size);
+    }
+
+    /* Methods */
+
+    public static long hash(long a, long b, String s) {
+        long h = 0xCBF29CE484222325L;
+
+        h = (h ^ a) * 0x100000001B3L;
+        h = (h ^ b) * 0x100000001B3L;
+        for (int i = 0; i != s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    /**
+     * Records the key and tells whether it was not already seen during the window.
+     *
+     * @param key the key
+     * @return {@code false} if the key is a duplicate
+     */
+    public boolean accept(long key) {
+        final long now = System.nanoTime();
+        final int start = spread(key) & mask;
+        int victim = start;
+        long oldest = -1L;
+        boolean free = false;
+
+        // every slot is probed, a live copy of the key may sit past an expired slot
+        for (int n = 0; n != PROBES; n++) {
+            final int i = (start + n) & mask;
+            final long k = keys.get(i);
+            final long age = now - times.get(i);
+            final boolean expired = k == 0L || age >= window;
+
+            if (k == key && !expired) {
+                return false;
+            } else if (expired) {
+                if (!free) {
+                    victim = i;
+                    free = true;
+                }
+            } else if (!free && age > oldest) {
+                victim = i;
+                oldest = age;
+            }
+        }
+        // publish the time before the key so that a matching reader never sees an outdated time
+        times.set(victim, now);
+        keys.set(victim, key);
+        return true;
+    }
+
+    /* Internal */
+
+    private static int spread(long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal.util;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Shallow size estimates of common objects, assuming a 64-bit JVM with compressed references.
+ */
+public final class Footprints {
+
+    public static final int HEADER = 12;
+    public static final int ARRAY_HEADER = 16;
+    public static final int REFERENCE = 4;
+
+    /* Constructors */
+
+    private Footprints() {}
+
+    /* Methods */
+
+    public static long align(long size) {
+        return (size + 7L) & ~7L;
+    }
+
+    public static long object(int references, int primitives) {
+        return align(HEADER + (long) references * REFERENCE + primitives);
+    }
+
+    public static long array(int length, int elementSize) {
+        return align(ARRAY_HEADER + (long) length * elementSize);
+    }
+
+    public static long string(String s) {
+        return s == null ? 0L : object(1, 8) + array(s.length(), Character.BYTES);
+    }
+
+    /**
+     * Estimates a {@link java.util.HashMap} of the given size, without its keys and values.
+     */
+    public static long hashMap(int size) {
+        int capacity = 16;
+
+        while (capacity * 3 / 4 < size) {
+            capacity <<= 1;
+        }
+        return object(4, 16) + (size == 0 ? 0L : array(capacity, REFERENCE)) + size * object(3, 4);
+    }
+
+    /**
+     * Estimates a {@link java.util.HashMap} with its keys and values.
+     */
+    public static long deepHashMap(Map<?, ?> map) {
+        long size = hashMap(map.size());
+
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            size += value(entry.getKey()) + value(entry.getValue());
+        }
+        return size;
+    }
+
+    /**
+     * Estimates a JSON-like value: strings, boxed primitives, maps and lists of them.
+     */
+    public static long value(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 0L;
+        } else if (value instanceof String) {
+            return string((String) value);
+        } else if (value instanceof Map) {
+            return deepHashMap((Map<?, ?>) value);
+        } else if (value instanceof Collection) {
+            final Collection<?> collection = (Collection<?>) value;
+            long size = object(1, 8) + array(collection.size(), REFERENCE);
+
+            for (Object element : collection) {
+                size += value(element);
+            }
+            return size;
+        }
+        return object(0, 8);
+    }
+}
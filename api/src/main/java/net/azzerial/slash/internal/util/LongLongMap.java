@@ -0,0 +1,255 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An open-addressing {@code long -> long} map with lock-free reads.
+ *
+ * <p>Writers are serialized on the map itself. A slot is only ever claimed once per table (removed slots are
+ * tombstoned until the next rehash), so a reader which matched a key can never observe the value of another key.</p>
+ */
+public final class LongLongMap {
+
+    public static final long NO_VALUE = 0L;
+
+    private static final long FREE = 0L;
+    private static final long REMOVED = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 4;
+
+    private volatile AtomicLongArray table;
+    private int size;
+    private int used;
+
+    /* Constructors */
+
+    public LongLongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongLongMap(int capacity) {
+        this.table = new AtomicLongArray(tableSize(capacity) << 1);
+    }
+
+    /* Getters & Setters */
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return table.length() >> 1;
+    }
+
+    public long get(long key) {
+        final AtomicLongArray table = this.table;
+        final int mask = (table.length() >> 1) - 1;
+        int i = hash(key) & mask;
+
+        for (int n = 0; n <= mask; n++) {
+            final long k = table.get(i << 1);
+
+            if (k == key) {
+                return table.get((i << 1) + 1);
+            } else if (k == FREE) {
+                return NO_VALUE;
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != NO_VALUE;
+    }
+
+    public boolean containsValue(long value) {
+        final AtomicLongArray table = this.table;
+
+        for (int i = 0; i < table.length(); i += 2) {
+            final long k = table.get(i);
+
+            if (k != FREE && k != REMOVED && table.get(i + 1) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long[] values() {
+        final AtomicLongArray table = this.table;
+        final long[] values = new long[table.length() >> 1];
+        int n = 0;
+
+        for (int i = 0; i < table.length(); i += 2) {
+            final long k = table.get(i);
+            final long v = table.get(i + 1);
+
+            if (k != FREE && k != REMOVED && v != NO_VALUE) {
+                values[n++] = v;
+            }
+        }
+        return Arrays.copyOf(values, n);
+    }
+
+    public void forEach(Consumer consumer) {
+        final AtomicLongArray table = this.table;
+
+        for (int i = 0; i < table.length(); i += 2) {
+            final long k = table.get(i);
+            final long v = table.get(i + 1);
+
+            if (k != FREE && k != REMOVED && v != NO_VALUE) {
+                consumer.accept(k, v);
+            }
+        }
+    }
+
+    /* Methods */
+
+    public synchronized long put(long key, long value) {
+        checkKey(key);
+        if (value == NO_VALUE) {
+            throw new IllegalArgumentException("value must not be " + NO_VALUE);
+        }
+
+        final AtomicLongArray table = this.table;
+        final int mask = (table.length() >> 1) - 1;
+        int i = hash(key) & mask;
+
+        while (true) {
+            final long k = table.get(i << 1);
+
+            if (k == key) {
+                final long previous = table.get((i << 1) + 1);
+
+                table.set((i << 1) + 1, value);
+                if (previous == NO_VALUE) {
+                    size++;
+                }
+                return previous;
+            } else if (k == FREE) {
+                // publish the value before the key so that readers matching the key always see it
+                table.set((i << 1) + 1, value);
+                table.set(i << 1, key);
+                size++;
+                if (++used > threshold(mask + 1)) {
+                    rehash(size + (size >>> 1) + 1);
+                }
+                return NO_VALUE;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    public synchronized long remove(long key) {
+        checkKey(key);
+        final AtomicLongArray table = this.table;
+        final int mask = (table.length() >> 1) - 1;
+        int i = hash(key) & mask;
+
+        for (int n = 0; n <= mask; n++) {
+            final long k = table.get(i << 1);
+
+            if (k == key) {
+                final long previous = table.get((i << 1) + 1);
+
+                table.set((i << 1) + 1, NO_VALUE);
+                table.set(i << 1, REMOVED);
+                if (previous != NO_VALUE) {
+                    size--;
+                }
+                return previous;
+            } else if (k == FREE) {
+                return NO_VALUE;
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_VALUE;
+    }
+
+    public synchronized void clear() {
+        this.table = new AtomicLongArray(MIN_CAPACITY << 1);
+        this.size = 0;
+        this.used = 0;
+    }
+
+    /* Internal */
+
+    private void rehash(int expected) {
+        final AtomicLongArray old = this.table;
+        final AtomicLongArray table = new AtomicLongArray(tableSize(expected) << 1);
+        final int mask = (table.length() >> 1) - 1;
+
+        for (int j = 0; j < old.length(); j += 2) {
+            final long k = old.get(j);
+            final long v = old.get(j + 1);
+
+            if (k == FREE || k == REMOVED || v == NO_VALUE) {
+                continue;
+            }
+
+            int i = hash(k) & mask;
+
+            while (table.get(i << 1) != FREE) {
+                i = (i + 1) & mask;
+            }
+            table.set((i << 1) + 1, v);
+            table.set(i << 1, k);
+        }
+        this.used = size;
+        this.table = table;
+    }
+
+    private static void checkKey(long key) {
+        if (key == FREE || key == REMOVED) {
+            throw new IllegalArgumentException("key must not be " + key);
+        }
+    }
+
+    private static int hash(long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int threshold(int capacity) {
+        return capacity - (capacity >>> 2);
+    }
+
+    private static int tableSize(int capacity) {
+        int n = MIN_CAPACITY;
+
+        while (threshold(n) < capacity) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    /* Nested Classes */
+
+    @FunctionalInterface
+    public interface Consumer {
+
+        void accept(long key, long value);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal.util;
+
+import java.util.function.Consumer;
+
+/**
+ * An open-addressing {@code long -> Object} map using linear probing and backward-shift deletion.
+ *
+ * <p>This map is not thread-safe, the {@code 0} key is reserved.</p>
+ */
+public final class LongObjectMap<V> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    /* Constructors */
+
+    public LongObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongObjectMap(int capacity) {
+        final int n = tableSize(capacity);
+
+        this.keys = new long[n];
+        this.values = new Object[n];
+    }
+
+    /* Getters & Setters */
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        final int mask = keys.length - 1;
+
+        for (int i = hash(key) & mask; keys[i] != 0L; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return (V) values[i];
+            }
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> consumer) {
+        for (int i = 0; i != keys.length; i++) {
+            if (keys[i] != 0L) {
+                consumer.accept((V) values[i]);
+            }
+        }
+    }
+
+    /* Methods */
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == 0L) {
+            throw new IllegalArgumentException("key must not be 0");
+        }
+        if (value == null) {
+            throw new NullPointerException("value must not be null");
+        }
+
+        final int mask = keys.length - 1;
+        int i = hash(key) & mask;
+
+        for (; keys[i] != 0L; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                final V previous = (V) values[i];
+
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > threshold(keys.length)) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        final int mask = keys.length - 1;
+
+        for (int i = hash(key) & mask; keys[i] != 0L; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                final V previous = (V) values[i];
+
+                shift(i);
+                size--;
+                return previous;
+            }
+        }
+        return null;
+    }
+
+    public void clear() {
+        this.keys = new long[MIN_CAPACITY];
+        this.values = new Object[MIN_CAPACITY];
+        this.size = 0;
+    }
+
+    /* Internal */
+
+    private void shift(int gap) {
+        final int mask = keys.length - 1;
+        int i = gap;
+
+        while (true) {
+            i = (i + 1) & mask;
+            if (keys[i] == 0L) {
+                break;
+            }
+
+            final int home = hash(keys[i]) & mask;
+
+            // move the entry into the gap unless its home slot lies cyclically in (gap, i]
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = 0L;
+        values[gap] = null;
+    }
+
+    private void resize(int capacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        final int mask = capacity - 1;
+
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        for (int j = 0; j != oldKeys.length; j++) {
+            if (oldKeys[j] == 0L) {
+                continue;
+            }
+
+            int i = hash(oldKeys[j]) & mask;
+
+            while (keys[i] != 0L) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    private static int hash(long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int threshold(int capacity) {
+        return capacity - (capacity >>> 2);
+    }
+
+    private static int tableSize(int capacity) {
+        int n = MIN_CAPACITY;
+
+        while (threshold(n) < capacity) {
+            n <<= 1;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A bounded LRU cache of values which are loaded asynchronously. A value being loaded is cached as well, so concurrent
+ * requests for a same key share a single load. Failed loads are not cached.
+ */
+public final class PageCache<V> {
+
+    // guarded by itself
+    private final Map<String, CompletableFuture<V>> entries;
+
+    /* Constructors */
+
+    public PageCache(int capacity) {
+        this.entries = new LinkedHashMap<String, CompletableFuture<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<V>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /* Methods */
+
+    public CompletableFuture<V> get(String key, Supplier<? extends V> loader, Executor executor) {
+        final CompletableFuture<V> future;
+
+        synchronized (entries) {
+            final CompletableFuture<V> cached = entries.get(key);
+
+            if (cached != null) {
+                return cached;
+            }
+            future = new CompletableFuture<>();
+            entries.put(key, future);
+        }
+        executor.execute(() -> {
+            try {
+                future.complete(loader.get());
+            } catch (Throwable t) {
+                synchronized (entries) {
+                    entries.remove(key, future);
+                }
+                future.completeExceptionally(t);
+            }
+        });
+        return future;
+    }
+
+    public void removeIf(Predicate<String> filter) {
+        synchronized (entries) {
+            entries.keySet().removeIf(filter);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
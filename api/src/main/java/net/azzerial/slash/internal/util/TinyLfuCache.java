@@ -0,0 +1,370 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal.util;
+
+import java.util.function.Consumer;
+
+/**
+ * A weight-bounded {@code long -> Object} cache using the W-TinyLFU eviction policy.
+ *
+ * <p>New entries enter a small LRU window. Entries leaving the window compete with the eldest entry of the main
+ * (segmented LRU) space and are only admitted if they were accessed more often, as estimated by a count-min sketch.
+ * This keeps a burst of entries which are never accessed again from flushing the frequently used ones.</p>
+ *
+ * <p>This cache is not thread-safe, the {@code 0} key is reserved.</p>
+ */
+public final class TinyLfuCache<V> {
+
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final LongObjectMap<Node<V>> nodes = new LongObjectMap<>();
+    private final Queue<V> window = new Queue<>();
+    private final Queue<V> probation = new Queue<>();
+    private final Queue<V> protect = new Queue<>();
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    private long maximumWeight;
+    private long windowMaximum;
+    private long protectedMaximum;
+
+    /* Constructors */
+
+    public TinyLfuCache() {
+        this(UNBOUNDED);
+    }
+
+    public TinyLfuCache(long maximumWeight) {
+        setMaximumWeight(maximumWeight, v -> {});
+    }
+
+    /* Getters & Setters */
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getWeightedSize() {
+        return window.weight + probation.weight + protect.weight;
+    }
+
+    public void setMaximumWeight(long maximumWeight, Consumer<? super V> evicted) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("maximumWeight must be positive");
+        }
+
+        final long main = maximumWeight - Math.max(1L, maximumWeight / 100);
+
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = maximumWeight - main;
+        this.protectedMaximum = main - main / 5;
+        evict(evicted);
+    }
+
+    public V get(long key) {
+        final Node<V> node = nodes.get(key);
+        return node == null ? null : node.value;
+    }
+
+    public boolean containsKey(long key) {
+        return nodes.containsKey(key);
+    }
+
+    /* Methods */
+
+    /**
+     * Inserts or replaces an entry, counting it as an access, then evicts entries until the cache fits its maximum
+     * weight. The evicted values (possibly including the given one) are passed to the consumer.
+     */
+    public void put(long key, V value, int weight, Consumer<? super V> evicted) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight must not be negative");
+        }
+        if (maximumWeight != UNBOUNDED) {
+            sketch.increment(key, nodes.size());
+        }
+
+        Node<V> node = nodes.get(key);
+
+        if (node == null) {
+            node = new Node<>(key, value, weight);
+            nodes.put(key, node);
+            window.addLast(node);
+        } else {
+            queue(node.type).weight += weight - node.weight;
+            node.value = value;
+            node.weight = weight;
+            onHit(node);
+        }
+        evict(evicted);
+    }
+
+    /**
+     * Updates the weight of an entry without counting it as an access, then evicts entries until the cache fits its
+     * maximum weight.
+     */
+    public void setWeight(long key, int weight, Consumer<? super V> evicted) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight must not be negative");
+        }
+
+        final Node<V> node = nodes.get(key);
+
+        if (node != null) {
+            queue(node.type).weight += weight - node.weight;
+            node.weight = weight;
+            evict(evicted);
+        }
+    }
+
+    /**
+     * Counts an access to a key without touching the entries, so that the key is admitted more easily once (or if
+     * already) inserted.
+     */
+    public void recordAccess(long key) {
+        if (maximumWeight != UNBOUNDED) {
+            sketch.increment(key, nodes.size());
+        }
+    }
+
+    public V remove(long key) {
+        final Node<V> node = nodes.remove(key);
+
+        if (node == null) {
+            return null;
+        }
+        queue(node.type).remove(node);
+        return node.value;
+    }
+
+    /**
+     * Removes every entry, keeping the frequencies recorded so far.
+     */
+    public void clear() {
+        nodes.clear();
+        window.clear();
+        probation.clear();
+        protect.clear();
+    }
+
+    public void forEachValue(Consumer<? super V> consumer) {
+        nodes.forEachValue(node -> consumer.accept(node.value));
+    }
+
+    /* Internal */
+
+    private Queue<V> queue(int type) {
+        switch (type) {
+        case WINDOW: return window;
+        case PROBATION: return probation;
+        default: return protect;
+        }
+    }
+
+    private void onHit(Node<V> node) {
+        if (node.type == PROBATION) {
+            probation.remove(node);
+            node.type = PROTECTED;
+            protect.addLast(node);
+            while (protect.weight > protectedMaximum && protect.head != node) {
+                final Node<V> demoted = protect.head;
+
+                protect.remove(demoted);
+                demoted.type = PROBATION;
+                probation.addLast(demoted);
+            }
+        } else {
+            final Queue<V> queue = queue(node.type);
+
+            queue.remove(node);
+            queue.addLast(node);
+        }
+    }
+
+    private void evict(Consumer<? super V> evicted) {
+        Node<V> candidate = null;
+
+        // entries overflowing the window are moved to the tail of the probation space as admission candidates
+        while (window.weight > windowMaximum && window.head != null) {
+            final Node<V> node = window.head;
+
+            window.remove(node);
+            node.type = PROBATION;
+            probation.addLast(node);
+            if (candidate == null) {
+                candidate = node;
+            }
+        }
+        while (getWeightedSize() > maximumWeight) {
+            final Node<V> victim = probation.head != null ? probation.head :
+                protect.head != null ? protect.head :
+                window.head;
+
+            if (candidate == null || candidate == victim) {
+                if (candidate == victim) {
+                    candidate = candidate.next;
+                }
+                evict(victim, evicted);
+            } else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evict(victim, evicted);
+            } else {
+                final Node<V> rejected = candidate;
+
+                candidate = candidate.next;
+                evict(rejected, evicted);
+            }
+        }
+    }
+
+    private void evict(Node<V> node, Consumer<? super V> evicted) {
+        nodes.remove(node.key);
+        queue(node.type).remove(node);
+        evicted.accept(node.value);
+    }
+
+    /* Nested Classes */
+
+    private static final class Node<T> {
+
+        private final long key;
+        private T value;
+        private int weight;
+        private int type = WINDOW;
+        private Node<T> prev;
+        private Node<T> next;
+
+        /* Constructors */
+
+        private Node(long key, T value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Queue<T> {
+
+        private Node<T> head;
+        private Node<T> tail;
+        private long weight;
+
+        /* Methods */
+
+        private void addLast(Node<T> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        private void clear() {
+            head = null;
+            tail = null;
+            weight = 0L;
+        }
+
+        private void remove(Node<T> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            weight -= node.weight;
+        }
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters, halved periodically so that old accesses age out.
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = {
+            0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L
+        };
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private long[] table = new long[16];
+        private int additions;
+
+        /* Methods */
+
+        private void increment(long key, int entries) {
+            if (entries > table.length) {
+                table = new long[Integer.highestOneBit(entries) << 1];
+                additions = 0;
+            }
+
+            boolean added = false;
+
+            for (int i = 0; i != SEEDS.length; i++) {
+                final long h = hash(key, i);
+                final int index = (int) (h & (table.length - 1));
+                final int offset = (int) ((h >>> 32) & 15) << 2;
+
+                if (((table[index] >>> offset) & 15L) != 15L) {
+                    table[index] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions == table.length * 10) {
+                for (int i = 0; i != table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions >>>= 1;
+            }
+        }
+
+        private int frequency(long key) {
+            int frequency = 15;
+
+            for (int i = 0; i != SEEDS.length; i++) {
+                final long h = hash(key, i);
+                final int index = (int) (h & (table.length - 1));
+                final int offset = (int) ((h >>> 32) & 15) << 2;
+
+                frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 15L));
+            }
+            return frequency;
+        }
+
+        private static long hash(long key, int i) {
+            long h = (key + SEEDS[i]) * SEEDS[(i + 1) & 3];
+
+            h ^= h >>> 31;
+            return h * 0x9E3779B97F4A7C15L;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package net.azzerial.slash.internal.util;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 
 public final class UnsignedBase512 {
 
@@ -41,6 +42,23 @@ public final class UnsignedBase512 {
         /* U+0241 -> U+024F */ "ɁɂɃɄɅɆɇɈɉɊɋɌɍɎɏ" +
         /* U+0250 -> U+0295 */ "ɐɑɒɓɔɕɖɗɘəɚɛɜɝɞɟɠɡɢɣɤɥɦɧɨɩɪɫɬɭɮɯɰɱɲɳɴɵɶɷɸɹɺɻɼɽɾɿʀʁʂʃʄʅʆʇʈʉʊʋʌʍʎʏʐʑʒʓʔʕ";
     private static final BigInteger _512 = BigInteger.valueOf(512);
+    private static final int BITS = 9;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final char[] DIGITS = NUMERALS.toCharArray();
+    private static final int[] VALUES;
+
+    static {
+        int max = 0;
+
+        for (char c : DIGITS) {
+            max = Math.max(max, c);
+        }
+        VALUES = new int[max + 1];
+        Arrays.fill(VALUES, -1);
+        for (int i = 0; i != DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = i;
+        }
+    }
 
     /* Constructors */
 
@@ -49,19 +67,58 @@ public final class UnsignedBase512 {
     /* Methods */
 
     public static byte parseByte(String value) {
-        return parseBigInteger(value).byteValueExact();
+        final long n = parseLong(value);
+
+        if (n > Byte.MAX_VALUE) {
+            throw new ArithmeticException("value out of byte range");
+        }
+        return (byte) n;
     }
 
     public static short parseShort(String value) {
-        return parseBigInteger(value).shortValueExact();
+        final long n = parseLong(value);
+
+        if (n > Short.MAX_VALUE) {
+            throw new ArithmeticException("value out of short range");
+        }
+        return (short) n;
     }
 
     public static int parseInt(String value) {
-        return parseBigInteger(value).intValueExact();
+        final long n = parseLong(value);
+
+        if (n > Integer.MAX_VALUE) {
+            throw new ArithmeticException("value out of int range");
+        }
+        return (int) n;
     }
 
     public static long parseLong(String value) {
-        return parseBigInteger(value).longValueExact();
+        if (value == null) {
+            throw new NullPointerException("value must not be null");
+        }
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("value must not be empty");
+        }
+        return parseLong(value, 0, value.length());
+    }
+
+    public static long parseLong(CharSequence value, int from, int to) {
+        long n = 0L;
+
+        for (int i = from; i != to; i++) {
+            final char c = value.charAt(i);
+            final int digit = c < VALUES.length ? VALUES[c] : -1;
+
+            if (digit == -1) {
+                throw new IllegalArgumentException("value contains characters not present in the encoding");
+            }
+            if ((n >>> (Long.SIZE - 1 - BITS)) != 0) {
+                throw new ArithmeticException("value out of long range");
+            }
+            n = (n << BITS) | digit;
+        }
+        return n;
     }
 
     public static BigInteger parseBigInteger(String value) {
@@ -85,19 +142,50 @@ public final class UnsignedBase512 {
     }
 
     public static String toString(byte value) {
-        return toString(BigInteger.valueOf(value));
+        return toString((long) value);
     }
 
     public static String toString(short value) {
-        return toString(BigInteger.valueOf(value));
+        return toString((long) value);
     }
 
     public static String toString(int value) {
-        return toString(BigInteger.valueOf(value));
+        return toString((long) value);
     }
 
     public static String toString(long value) {
-        return toString(BigInteger.valueOf(value));
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative");
+        }
+
+        final char[] buf = new char[8];
+        int i = buf.length;
+
+        while (value != 0) {
+            buf[--i] = DIGITS[(int) (value & MASK)];
+            value >>>= BITS;
+        }
+        return new String(buf, i, buf.length - i);
+    }
+
+    /**
+     * Encodes a non-negative value on exactly {@code width} characters, left-padded with the zero numeral.
+     */
+    public static String toString(long value, int width) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative");
+        }
+
+        final char[] buf = new char[width];
+
+        for (int i = width - 1; i >= 0; i--) {
+            buf[i] = DIGITS[(int) (value & MASK)];
+            value >>>= BITS;
+        }
+        if (value != 0) {
+            throw new IllegalArgumentException("value does not fit in " + width + " characters");
+        }
+        return new String(buf);
     }
 
     public static String toString(BigInteger value) {
@@ -122,8 +210,10 @@ public final class UnsignedBase512 {
     /* Internal */
 
     private static boolean canDecode(String s) {
-        for (char c : s.toCharArray()) {
-            if (!NUMERALS.contains(String.valueOf(c))) {
+        for (int i = 0; i != s.length(); i++) {
+            final char c = s.charAt(i);
+
+            if (c >= VALUES.length || VALUES[c] == -1) {
                 return false;
             }
         }
@@ -16,6 +16,7 @@
 
 package net.azzerial.slash.util;
 
+import net.azzerial.slash.internal.ComponentRegistry;
 import net.dv8tion.jda.internal.utils.Checks;
 
 import static net.azzerial.slash.internal.ComponentRegistry.CODE_LENGTH;
@@ -37,7 +38,14 @@ public final class Buffer {
             if (buffer.length() <= i) {
                 throw new IllegalArgumentException("The buffer is invalid!");
             }
-            this.buffer = buffer;
+
+            // strips the signature and reads back the data which did not fit in the custom id
+            final String restored = ComponentRegistry.getInstance().unwrapComponentId(buffer);
+
+            if (restored == null) {
+                throw new IllegalArgumentException("The buffer has expired!");
+            }
+            this.buffer = restored;
         }
 
         /* Methods */
@@ -71,6 +79,13 @@ public final class Buffer {
                 return s.trim();
             }
 
+            /**
+             * Returns the data as it was read, padding included.
+             */
+            public String asRawString() {
+                return s;
+            }
+
             public boolean asBoolean() {
                 return asInt(2) == 1;
             }
@@ -128,7 +143,7 @@ public final class Buffer {
         }
 
         public Writer write(int size, String s) {
-            if (sb.length() + size > 100 - CODE_LENGTH) {
+            if (sb.length() + size > ComponentRegistry.getCurrentMaxDataLength()) {
                 throw new OutOfMemoryError("Required allocation size is greater than the available one!");
             }
             sb.append(String.format("%-" + size + "." + size + "s", s));
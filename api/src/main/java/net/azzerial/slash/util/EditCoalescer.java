@@ -0,0 +1,128 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.util;
+
+import net.azzerial.slash.internal.ClientContext;
+import net.dv8tion.jda.api.events.interaction.GenericComponentInteractionCreateEvent;
+import net.dv8tion.jda.api.requests.RestAction;
+import net.dv8tion.jda.internal.utils.Checks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces the edits requested for a same message.
+ *
+ * <p>The first edit of a message is sent right away, the following ones are sent at most once per window: only the
+ * latest render requested during the window is sent, the superseded ones are dropped before being rendered. This can
+ * be used both for rapid-fire component interactions and for streaming the progress of a long-running handler.</p>
+ */
+public final class EditCoalescer {
+
+    public static final long DEFAULT_WINDOW = 1_000L;
+    public static final TimeUnit DEFAULT_WINDOW_UNIT = TimeUnit.MILLISECONDS;
+
+    private static final ScheduledExecutorService threadpool = Executors.newSingleThreadScheduledExecutor();
+
+    private final long window;
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    /* Constructors */
+
+    private EditCoalescer(long window) {
+        this.window = window;
+    }
+
+    /* Methods */
+
+    public static EditCoalescer create() {
+        return create(DEFAULT_WINDOW, DEFAULT_WINDOW_UNIT);
+    }
+
+    public static EditCoalescer create(long window, TimeUnit unit) {
+        Checks.notNegative(window, "Window");
+        Checks.notNull(unit, "Unit");
+        return new EditCoalescer(unit.toNanos(window));
+    }
+
+    public void submit(GenericComponentInteractionCreateEvent event, Supplier<? extends RestAction<?>> render) {
+        Checks.notNull(event, "Event");
+        submit(event.getMessageIdLong(), render);
+    }
+
+    public void submit(long messageId, Supplier<? extends RestAction<?>> render) {
+        Checks.notNull(render, "Render");
+        final ClientContext context = ClientContext.peek();
+        // the render may run later on the scheduler, in the context of the client which requested it
+        final Supplier<? extends RestAction<?>> bound = context == null ? render : () -> context.call(render);
+        final Slot created = new Slot();
+        // a slot exists for as long as an edit of the message is in flight or was sent less than a window ago
+        final Slot slot = slots.compute(messageId, (id, current) -> {
+            final Slot s = current != null ? current : created;
+
+            s.pending = bound;
+            return s;
+        });
+
+        if (slot == created) {
+            flush(messageId);
+        }
+    }
+
+    /* Internal */
+
+    private void flush(long messageId) {
+        final AtomicReference<Supplier<? extends RestAction<?>>> render = new AtomicReference<>();
+
+        slots.computeIfPresent(messageId, (id, slot) -> {
+            if (slot.pending == null) {
+                // nothing was requested during a whole window, the message is idle again
+                return null;
+            }
+            render.set(slot.pending);
+            slot.pending = null;
+            return slot;
+        });
+        if (render.get() == null) {
+            return;
+        }
+
+        try {
+            render.get().get()
+                .queue(v -> release(messageId), e -> release(messageId));
+        } catch (RuntimeException e) {
+            release(messageId);
+            throw e;
+        }
+    }
+
+    private void release(long messageId) {
+        threadpool.schedule(() -> flush(messageId), window, TimeUnit.NANOSECONDS);
+    }
+
+    /* Nested Classes */
+
+    private static final class Slot {
+
+        private Supplier<? extends RestAction<?>> pending;
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.util;
+
+import net.azzerial.slash.annotations.Payload;
+import net.azzerial.slash.internal.ComponentRegistry;
+import net.dv8tion.jda.internal.utils.Checks;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static net.azzerial.slash.internal.ComponentRegistry.CODE_LENGTH;
+
+/**
+ * Encodes and decodes a class of which the fields are annotated with {@link Payload.Field}, to and from component
+ * data.
+ *
+ * <p>The layout is the one of a {@link Buffer.Writer} writing the fields in order (left-aligned, space-padded), so a
+ * payload can be read with a {@link Buffer.Reader} and the other way around. The layout is compiled once per class:
+ * encoding writes every field straight into a reusable {@code char[]}, and decoding parses them in place, without an
+ * intermediate string per field. Unlike the {@link Buffer.Writer}, a value which does not fit in its field is
+ * rejected instead of truncated.</p>
+ *
+ * @param <T> the payload type, which must have a no-argument constructor
+ */
+public final class PayloadCodec<T> {
+
+    private static final ClassValue<PayloadCodec<?>> codecs = new ClassValue<PayloadCodec<?>>() {
+        @Override
+        protected PayloadCodec<?> computeValue(Class<?> type) {
+            return new PayloadCodec<>(type);
+        }
+    };
+
+    private final Constructor<T> constructor;
+    private final Slot[] slots;
+    private final int width;
+    private final ThreadLocal<char[]> buffer;
+
+    /* Constructors */
+
+    private PayloadCodec(Class<T> type) {
+        final List<Slot> slots = new ArrayList<>();
+        int offset = 0;
+
+        for (Class<?> cls = type; cls != null && cls != Object.class; cls = cls.getSuperclass()) {
+            for (Field field : cls.getDeclaredFields()) {
+                final Payload.Field annotation = field.getAnnotation(Payload.Field.class);
+
+                if (annotation != null) {
+                    slots.add(new Slot(field, annotation));
+                }
+            }
+        }
+        if (slots.isEmpty()) {
+            throw new IllegalArgumentException("Provided " + type.getSimpleName() + ".class has no field annotated with @Payload.Field!");
+        }
+        slots.sort(Comparator.comparingInt(slot -> slot.order));
+        for (int i = 0; i != slots.size(); i++) {
+            final Slot slot = slots.get(i);
+
+            if (i != 0 && slots.get(i - 1).order == slot.order) {
+                throw new IllegalArgumentException("Provided " + type.getSimpleName() + ".class has two fields of order " + slot.order + "!");
+            }
+            slot.offset = offset;
+            offset += slot.width;
+        }
+
+        try {
+            this.constructor = type.getDeclaredConstructor();
+            this.constructor.setAccessible(true);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("Provided " + type.getSimpleName() + ".class has no no-argument constructor!", e);
+        }
+        this.slots = slots.toArray(new Slot[0]);
+        this.width = offset;
+        this.buffer = ThreadLocal.withInitial(() -> new char[width]);
+    }
+
+    /* Getters & Setters */
+
+    /**
+     * Returns the number of characters of an encoded payload.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /* Methods */
+
+    @SuppressWarnings("unchecked")
+    public static <T> PayloadCodec<T> of(Class<T> type) {
+        Checks.notNull(type, "Type");
+        return (PayloadCodec<T>) codecs.get(type);
+    }
+
+    /**
+     * Encodes a payload, to be used as (the start of) the data of a component.
+     */
+    public String encode(T value) {
+        Checks.notNull(value, "Value");
+        if (width > ComponentRegistry.getCurrentMaxDataLength()) {
+            throw new IllegalStateException("The payload is longer than the data of a component can be!");
+        }
+
+        final char[] buf = buffer.get();
+
+        try {
+            for (Slot slot : slots) {
+                slot.write(value, buf);
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return new String(buf, 0, width);
+    }
+
+    /**
+     * Decodes the payload of a component id, as read by a {@link Buffer.Reader}.
+     */
+    public T decode(String id) {
+        Checks.notNull(id, "Id");
+        if (id.length() <= CODE_LENGTH) {
+            throw new IllegalArgumentException("The buffer is invalid!");
+        }
+
+        final String restored = ComponentRegistry.getInstance().unwrapComponentId(id);
+
+        if (restored == null) {
+            throw new IllegalArgumentException("The buffer has expired!");
+        }
+
+        try {
+            final T value = constructor.newInstance();
+
+            for (Slot slot : slots) {
+                slot.read(restored, CODE_LENGTH, value);
+            }
+            return value;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* Internal */
+
+    private static void writeLong(char[] buf, int offset, int width, int radix, long value) {
+        int n = value < 0 ? 2 : 1;
+
+        for (long q = value / radix; q != 0; q /= radix) {
+            n++;
+        }
+        if (n > width) {
+            throw new IllegalArgumentException("Value " + Long.toString(value, radix) + " does not fit in " + width + " characters!");
+        }
+
+        int i = offset + n;
+        long q = value;
+
+        do {
+            buf[--i] = Character.forDigit((int) Math.abs(q % radix), radix);
+            q /= radix;
+        } while (q != 0);
+        if (value < 0) {
+            buf[--i] = '-';
+        }
+        Arrays.fill(buf, offset + n, offset + width, ' ');
+    }
+
+    private static long readLong(CharSequence s, int from, int to, int radix, long min, long max) {
+        to = Math.min(to, s.length());
+        while (from < to && s.charAt(from) == ' ') {
+            from++;
+        }
+        while (to > from && s.charAt(to - 1) == ' ') {
+            to--;
+        }
+        if (from == to) {
+            throw new NumberFormatException("The field is empty!");
+        }
+
+        final boolean negative = s.charAt(from) == '-';
+        // accumulates negatively, which also covers the minimum value
+        final long limit = negative ? min : -max;
+        long n = 0L;
+
+        for (int i = negative ? from + 1 : from; i != to; i++) {
+            final int digit = Character.digit(s.charAt(i), radix);
+
+            if (digit == -1 || n < (limit + digit) / radix) {
+                throw new NumberFormatException("For input string: \"" + s.subSequence(from, to) + "\"");
+            }
+            n = n * radix - digit;
+        }
+        if (negative && to == from + 1) {
+            throw new NumberFormatException("For input string: \"-\"");
+        }
+        return negative ? n : -n;
+    }
+
+    /* Nested Classes */
+
+    private static final class Slot {
+
+        private final Field field;
+        private final Class<?> type;
+        private final int order;
+        private final int width;
+        private final int radix;
+        private final Object[] constants;
+        private int offset;
+
+        /* Constructors */
+
+        private Slot(Field field, Payload.Field annotation) {
+            this.field = field;
+            this.type = field.getType();
+            this.order = annotation.order();
+            this.width = type == boolean.class ? 1 : annotation.width();
+            this.radix = annotation.radix();
+            this.constants = type.isEnum() ? type.getEnumConstants() : null;
+
+            final String name = field.getDeclaringClass().getSimpleName() + "." + field.getName();
+
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+                throw new IllegalArgumentException("Payload field " + name + " must not be static or final!");
+            }
+            if (!type.isPrimitive() && type != String.class && !type.isEnum()) {
+                throw new IllegalArgumentException("Payload field " + name + " must be of a primitive, String or enum type!");
+            }
+            Checks.positive(width, "Width of " + name);
+            Checks.check(Character.MIN_RADIX <= radix && radix <= Character.MAX_RADIX, "Radix of %s must be between 2 and 36! Provided: %d", name, radix);
+            field.setAccessible(true);
+        }
+
+        /* Methods */
+
+        private void write(Object obj, char[] buf) throws IllegalAccessException {
+            if (type == boolean.class) {
+                buf[offset] = field.getBoolean(obj) ? '1' : '0';
+            } else if (type == char.class) {
+                buf[offset] = field.getChar(obj);
+                Arrays.fill(buf, offset + 1, offset + width, ' ');
+            } else if (type == String.class || constants != null) {
+                final Object value = field.get(obj);
+
+                if (constants != null) {
+                    writeLong(buf, offset, width, radix, value == null ? -1 : ((Enum<?>) value).ordinal());
+                    return;
+                }
+
+                final String s = value == null ? "" : (String) value;
+
+                if (s.length() > width) {
+                    throw new IllegalArgumentException("Value of " + field.getName() + " does not fit in " + width + " characters!");
+                }
+                s.getChars(0, s.length(), buf, offset);
+                Arrays.fill(buf, offset + s.length(), offset + width, ' ');
+            } else if (type == float.class || type == double.class) {
+                // a widened float prints its binary expansion (0.1f as 0.10000000149011612)
+                final String s = type == float.class ?
+                    Float.toString(field.getFloat(obj)) :
+                    Double.toString(field.getDouble(obj));
+
+                if (s.length() > width) {
+                    throw new IllegalArgumentException("Value of " + field.getName() + " does not fit in " + width + " characters!");
+                }
+                s.getChars(0, s.length(), buf, offset);
+                Arrays.fill(buf, offset + s.length(), offset + width, ' ');
+            } else {
+                writeLong(buf, offset, width, radix, field.getLong(obj));
+            }
+        }
+
+        private void read(String s, int base, Object obj) throws IllegalAccessException {
+            final int from = base + offset;
+            final int to = from + width;
+
+            if (type == boolean.class) {
+                field.setBoolean(obj, from < s.length() && s.charAt(from) == '1');
+            } else if (type == char.class) {
+                field.setChar(obj, from < s.length() ? s.charAt(from) : ' ');
+            } else if (type == String.class) {
+                field.set(obj, from < s.length() ? s.substring(from, Math.min(to, s.length())).trim() : "");
+            } else if (constants != null) {
+                final int ordinal = (int) readLong(s, from, to, radix, -1, constants.length - 1);
+
+                field.set(obj, ordinal == -1 ? null : constants[ordinal]);
+            } else if (type == float.class) {
+                field.setFloat(obj, Float.parseFloat(s.substring(from, Math.min(to, s.length())).trim()));
+            } else if (type == double.class) {
+                field.setDouble(obj, Double.parseDouble(s.substring(from, Math.min(to, s.length())).trim()));
+            } else if (type == long.class) {
+                field.setLong(obj, readLong(s, from, to, radix, Long.MIN_VALUE, Long.MAX_VALUE));
+            } else if (type == int.class) {
+                field.setInt(obj, (int) readLong(s, from, to, radix, Integer.MIN_VALUE, Integer.MAX_VALUE));
+            } else if (type == short.class) {
+                field.setShort(obj, (short) readLong(s, from, to, radix, Short.MIN_VALUE, Short.MAX_VALUE));
+            } else {
+                field.setByte(obj, (byte) readLong(s, from, to, radix, Byte.MIN_VALUE, Byte.MAX_VALUE));
+            }
+        }
+    }
+}
@@ -16,18 +16,30 @@
 
 package net.azzerial.slash.util;
 
+import net.azzerial.slash.Footprint;
+import net.azzerial.slash.internal.ClientContext;
+import net.azzerial.slash.internal.ComponentRegistry;
+import net.azzerial.slash.internal.ExpiryQueue;
+import net.azzerial.slash.internal.util.Footprints;
+import net.azzerial.slash.internal.util.TinyLfuCache;
+import net.azzerial.slash.internal.util.UnsignedBase512;
+import net.dv8tion.jda.api.entities.AbstractChannel;
 import net.dv8tion.jda.api.interactions.InteractionHook;
 import net.dv8tion.jda.api.utils.data.DataObject;
 import net.dv8tion.jda.internal.utils.Checks;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
@@ -39,43 +51,116 @@ public final class Session extends DataObject {
     public static final long DEFAULT_TIMEOUT = 60_000L;
     public static final TimeUnit DEFAULT_TIMEOUT_UNIT = TimeUnit.MILLISECONDS;
 
-    private static final String UUID_REGEX = "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}";
-
+    /**
+     * The length of a session token, the 63-bit session id followed by the snapshot index.
+     * Everything after the token in a component id is left free for {@link Buffer} data.
+     */
+    public static final int TOKEN_LENGTH = 9;
+
+    private static final int ID_LENGTH = 7;
+    private static final int INDEX_LENGTH = TOKEN_LENGTH - ID_LENGTH;
+    private static final int MAX_SNAPSHOTS = (1 << (9 * INDEX_LENGTH)) - 1;
+    // rough fixed cost of a session (object headers, maps, timer task) added to its serialized size
+    private static final int BASE_WEIGHT = 256;
+    // a session, its storage, its timer task and its cache node, without the data maps
+    private static final long SHALLOW_SIZE = Footprints.object(7, 28) + Footprints.object(2, 8) +
+        Footprints.object(5, 24) + Footprints.object(3, 16) + 3 * Footprints.REFERENCE;
+
+    // shared by the stores of every client: the timer thread only fires the timeouts, the expiry actions themselves
+    // are run by the expiry queue
     private static final ScheduledExecutorService threadpool = Executors.newSingleThreadScheduledExecutor();
-    private static final Map<UUID, Session> sessions = new HashMap<>();
+    private static final ExpiryQueue expiryQueue = new ExpiryQueue();
 
-    private final UUID uuid;
-    private final Map<UUID, DataObject> storage = new HashMap<>();
+    private final Store store;
+    private final long id;
+    private final Storage storage;
 
     private final long timeout;
     private final TimeUnit unit;
     private final InteractionHook hook;
     private final BiConsumer<InteractionHook, Session> action;
+    private long ttl;
+    private int generation;
     private ScheduledFuture<?> thread;
 
     /* Constructors */
 
     private Session(Session session, Map<String, Object> data) {
-        this(session.uuid, data, session.timeout, session.unit, session.hook, session.action);
+        this(session.store, session.id, session.storage, data, session.timeout, session.unit, session.ttl, session.hook, session.action);
     }
 
-    private Session(UUID uuid, Map<String, Object> data, long timeout, TimeUnit unit, InteractionHook hook, BiConsumer<InteractionHook, Session> action) {
+    private Session(Store store, long id, Storage storage, Map<String, Object> data, long timeout, TimeUnit unit, long ttl, InteractionHook hook, BiConsumer<InteractionHook, Session> action) {
         super(data);
-        Checks.notNull(uuid, "UUID");
         Checks.notNegative(timeout, "Timeout");
-        this.uuid = uuid;
+        this.store = store;
+        this.id = id;
+        this.storage = storage;
         this.timeout = timeout;
         this.unit = unit;
+        this.ttl = ttl;
         this.hook = hook;
         this.action = action;
-
-        startTimeoutThread();
     }
 
     /* Getters & Setters */
 
+    /**
+     * Returns the token of this session, to be used as (the start of) the data of a component.
+     */
+    public String getId() {
+        return UnsignedBase512.toString(id, ID_LENGTH) + UnsignedBase512.toString(0L, INDEX_LENGTH);
+    }
+
+    /**
+     * @deprecated Sessions are no longer identified by UUIDs, use {@link #getId()} instead.
+     */
+    @Deprecated
     public String getUuid() {
-        return uuid.toString();
+        return getId();
+    }
+
+    /**
+     * Returns the session store of the client of which a handler is running on the current thread, or the one of the
+     * default client otherwise. The static methods of this class all operate on that store.
+     */
+    public static Store getStore() {
+        return ClientContext.current().getSessionStore();
+    }
+
+    /**
+     * @see Store#setMemoryBudget(long)
+     */
+    public static void setMemoryBudget(long bytes) {
+        getStore().setMemoryBudget(bytes);
+    }
+
+    /**
+     * @see Store#clearMemoryBudget()
+     */
+    public static void clearMemoryBudget() {
+        getStore().clearMemoryBudget();
+    }
+
+    public static long getMemoryBudget() {
+        return getStore().getMemoryBudget();
+    }
+
+    public static long getMemoryUsage() {
+        return getStore().getMemoryUsage();
+    }
+
+    /**
+     * @see Store#getFootprint()
+     */
+    public static List<Footprint.Entry> getFootprint() {
+        return getStore().getFootprint();
+    }
+
+    /**
+     * @see Store#setMinimumTimeout(long, TimeUnit)
+     */
+    public static void setMinimumTimeout(long timeout, TimeUnit unit) {
+        getStore().setMinimumTimeout(timeout, unit);
     }
 
     /* Methods */
@@ -89,21 +174,15 @@ public final class Session extends DataObject {
     }
 
     public static Session create(long timeout, TimeUnit unit, InteractionHook hook, BiConsumer<InteractionHook, Session> action) {
-        Checks.positive(timeout, "Timeout");
-        Checks.notNull(unit, "Unit");
-        final UUID uuid = UUID.randomUUID();
-        final Session session = new Session(uuid, new HashMap<>(), timeout, unit, hook, action);
-
-        sessions.put(uuid, session);
-        return session;
+        return getStore().create(timeout, unit, hook, action);
     }
 
     public static Session load(String id) {
-        return get(id, false);
+        return getStore().load(id);
     }
 
     public static Session renew(String id) {
-        return get(id, true);
+        return getStore().renew(id);
     }
 
     @NotNull
@@ -128,66 +207,384 @@ public final class Session extends DataObject {
     }
 
     public String store(Consumer<DataObject> consumer) {
-        final UUID uuid = UUID.randomUUID();
-        final DataObject data = DataObject.fromJson(toJson());
+        final byte[] json = toJson();
+        final DataObject data = DataObject.fromJson(json);
+        final boolean bounded;
+        final int index;
+        final long weight;
 
         consumer.accept(data);
-        storage.put(uuid, data);
-        return getUuid() + uuid;
+        synchronized (storage) {
+            // read under the storage lock, so that a snapshot is either weighed here or by the budget change
+            bounded = store.isBounded();
+            if (storage.snapshots.size() == MAX_SNAPSHOTS) {
+                throw new IllegalStateException("Too many snapshots stored in the session!");
+            }
+            storage.snapshots.add(data);
+            index = storage.snapshots.size();
+            if (bounded) {
+                storage.weight += data.toJson().length;
+            }
+            weight = storage.weight;
+        }
+        if (bounded) {
+            final List<Session> evicted = new ArrayList<>();
+
+            synchronized (store.sessions) {
+                if (store.sessions.get(id) == this) {
+                    store.sessions.setWeight(id, weigh(json.length, weight), evicted::add);
+                }
+            }
+            evicted.forEach(Session::expire);
+        }
+        return UnsignedBase512.toString(id, ID_LENGTH) + UnsignedBase512.toString(index, INDEX_LENGTH);
     }
 
     /* Internal */
 
-    private static Session get(String id, boolean renew) {
-        Checks.notNull(id, "Id");
-        if (id.length() != CODE_LENGTH + 36 && id.length() != CODE_LENGTH + 72) {
-            throw new IllegalArgumentException("The id is invalid!");
+    private int weigh() {
+        if (!store.isBounded()) {
+            return 0;
         }
 
-        final String sessionStr = id.substring(CODE_LENGTH, CODE_LENGTH + 36);
-        final String storageStr = id.length() == CODE_LENGTH + 72 ?
-            id.substring(CODE_LENGTH  +36, CODE_LENGTH + 72) :
-            null;
+        final long weight;
 
-        if (!sessionStr.matches(UUID_REGEX) || (storageStr != null && !storageStr.matches(UUID_REGEX))) {
-            throw new IllegalArgumentException("The id is invalid!");
+        synchronized (storage) {
+            weight = storage.weight;
         }
+        return weigh(toJson().length, weight);
+    }
 
-        final UUID sessionUuid = UUID.fromString(sessionStr);
-        Session session = sessions.remove(sessionUuid);
+    private static int weigh(int size, long storageWeight) {
+        return (int) Math.min(Integer.MAX_VALUE, BASE_WEIGHT + size + storageWeight);
+    }
 
-        if (session == null) {
-            return null;
-        } else if (session.thread != null && !session.thread.isDone()) {
-            session.thread.cancel(true);
-        }
+    // must be called while holding the lock of the sessions of the store
+    private void startTimeoutThread() {
+        final int generation = ++this.generation;
 
-        final UUID storageUuid = storageStr != null ? UUID.fromString(storageStr) : null;
-        final DataObject data = session.storage.get(storageUuid);
+        this.thread = threadpool.schedule(() -> {
+            synchronized (store.sessions) {
+                // a renewal or an eviction bumps the generation, which makes this timeout stale
+                if (this.generation != generation || store.sessions.get(id) != this) {
+                    return;
+                }
+                store.sessions.remove(id);
+            }
+            fireAction();
+        }, ttl, unit);
+    }
 
-        if (data != null && !data.keys().isEmpty()) {
-            session = new Session(session, data.toMap());
+    // must be called while holding the lock of the sessions of the store
+    private void cancelTimeoutThread() {
+        generation++;
+        if (thread != null && !thread.isDone()) {
+            thread.cancel(false);
         }
-        if (renew) {
-            session.startTimeoutThread();
-            sessions.put(session.uuid, session);
+    }
+
+    private void expire() {
+        synchronized (store.sessions) {
+            cancelTimeoutThread();
+            // marks the session as evicted, for a renewal racing with its own eviction
+            generation = Integer.MIN_VALUE;
         }
-        return session;
+        fireAction();
     }
 
-    private void startTimeoutThread() {
-        if (timeout > 0 && unit != null) {
-            if (thread != null && !thread.isDone()) {
+    private void fireAction() {
+        if (hook != null && action != null) {
+            expiryQueue.submit(getChannelId(hook), () -> store.runner.execute(() -> action.accept(hook, this)));
+        }
+    }
+
+    private static long getChannelId(InteractionHook hook) {
+        final AbstractChannel channel = hook.getInteraction().getChannel();
+        return channel == null ? 0L : channel.getIdLong();
+    }
+
+    /* Nested Classes */
+
+    /**
+     * The live sessions of a client. Every client gets its own store, so that the session ids, the memory budget and
+     * the eviction of the sessions of a client are independent of the other clients of the same process.
+     */
+    public static final class Store {
+
+        private final Executor runner;
+        // guards itself, the timeout generations of its sessions and the minimum timeout
+        private final TinyLfuCache<Session> sessions = new TinyLfuCache<>();
+        private long minimumTimeout = 0L;
+        private volatile long memoryBudget = TinyLfuCache.UNBOUNDED;
+
+        /* Constructors */
+
+        public Store() {
+            this(Runnable::run);
+        }
+
+        /**
+         * @param runner the executor through which the expiry actions are run, on the expiry thread
+         */
+        public Store(Executor runner) {
+            Checks.notNull(runner, "Runner");
+            this.runner = runner;
+        }
+
+        /* Getters & Setters */
+
+        /**
+         * Bounds the approximate memory used by the live sessions, in bytes. The weight of a session is estimated from
+         * the serialized size of its data and stored snapshots.
+         *
+         * <p>Once the budget is exceeded, sessions are evicted according to how recently and how frequently they were
+         * used, and their expiry action is fired as if they had timed out.</p>
+         */
+        public void setMemoryBudget(long bytes) {
+            Checks.positive(bytes, "Bytes");
+            Checks.check(bytes != TinyLfuCache.UNBOUNDED, "Use clearMemoryBudget to remove the budget!");
+            final List<Session> evicted = new ArrayList<>();
+
+            synchronized (sessions) {
+                final boolean bounded = isBounded();
+
+                memoryBudget = bytes;
+                if (!bounded) {
+                    // the sessions are not weighed while unbounded
+                    reweigh(true);
+                }
+                sessions.setMaximumWeight(bytes, evicted::add);
+            }
+            evicted.forEach(Session::expire);
+        }
+
+        /**
+         * Removes the memory budget, after which the sessions are no longer weighed nor evicted.
+         */
+        public void clearMemoryBudget() {
+            synchronized (sessions) {
+                if (isBounded()) {
+                    sessions.setMaximumWeight(TinyLfuCache.UNBOUNDED, session -> {});
+                    memoryBudget = TinyLfuCache.UNBOUNDED;
+                    reweigh(false);
+                }
+            }
+        }
+
+        public long getMemoryBudget() {
+            return memoryBudget;
+        }
+
+        public long getMemoryUsage() {
+            synchronized (sessions) {
+                return sessions.getWeightedSize();
+            }
+        }
+
+        public int size() {
+            synchronized (sessions) {
+                return sessions.size();
+            }
+        }
+
+        /**
+         * Estimates the memory retained by the live sessions and by their stored snapshots. This walks every session
+         * while holding the sessions lock, and is meant for diagnostics rather than for frequent polling.
+         */
+        public List<Footprint.Entry> getFootprint() {
+            final long[] footprint = new long[4];
+
+            synchronized (sessions) {
+                sessions.forEachValue(session -> {
+                    footprint[0]++;
+                    footprint[1] += SHALLOW_SIZE + Footprints.deepHashMap(session.data);
+                    synchronized (session.storage) {
+                        footprint[2] += session.storage.snapshots.size();
+                        footprint[3] += Footprints.array(session.storage.snapshots.size(), Footprints.REFERENCE);
+                        for (DataObject snapshot : session.storage.snapshots) {
+                            footprint[3] += Footprints.object(1, 0) + Footprints.deepHashMap(snapshot.toMap());
+                        }
+                    }
+                });
+            }
+            return Arrays.asList(
+                new Footprint.Entry("sessions", footprint[0], footprint[1]),
+                new Footprint.Entry("session-snapshots", footprint[2], footprint[3])
+            );
+        }
+
+        /**
+         * Enables adaptive timeouts: a new session lives for the given minimum timeout, which is doubled each time the
+         * session is renewed, up to the timeout the session was created with. Idle sessions are thus released early
+         * while active ones keep their full lifetime. A timeout of {@code 0} disables this behaviour.
+         */
+        public void setMinimumTimeout(long timeout, TimeUnit unit) {
+            Checks.notNegative(timeout, "Timeout");
+            Checks.notNull(unit, "Unit");
+            synchronized (sessions) {
+                minimumTimeout = unit.toMillis(timeout);
+            }
+        }
+
+        /* Methods */
+
+        public Session create(long timeout, TimeUnit unit, InteractionHook hook, BiConsumer<InteractionHook, Session> action) {
+            Checks.positive(timeout, "Timeout");
+            Checks.notNull(unit, "Unit");
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            final List<Session> evicted = new ArrayList<>();
+            final Session session;
+
+            synchronized (sessions) {
+                long id;
+
+                do {
+                    id = random.nextLong() >>> 1;
+                } while (id == 0L || sessions.containsKey(id));
+
+                final long ttl = minimumTimeout == 0L ?
+                    timeout :
+                    Math.max(1L, Math.min(timeout, unit.convert(minimumTimeout, TimeUnit.MILLISECONDS)));
+
+                session = new Session(this, id, new Storage(), new HashMap<>(), timeout, unit, ttl, hook, action);
+                session.startTimeoutThread();
+                sessions.put(id, session, 0, evicted::add);
+            }
+            updateWeight(session, evicted);
+            evicted.forEach(Session::expire);
+            return session;
+        }
+
+        public Session load(String id) {
+            return get(id, false);
+        }
+
+        /**
+         * Drops every live session without firing its expiry action, e.g. once the client is shut down.
+         */
+        public void clear() {
+            synchronized (sessions) {
+                final List<Session> live = new ArrayList<>(sessions.size());
+
+                sessions.forEachValue(live::add);
+                for (Session session : live) {
+                    sessions.remove(session.id);
+                    session.cancelTimeoutThread();
+                    session.generation = Integer.MIN_VALUE;
+                }
+            }
+        }
+
+        public Session renew(String id) {
+            return get(id, true);
+        }
+
+        /* Internal */
+
+        private Session get(String id, boolean renew) {
+            Checks.notNull(id, "Id");
+            id = ComponentRegistry.getInstance().unwrapComponentId(id);
+            if (id == null) {
+                return null;
+            }
+            if (id.length() < CODE_LENGTH + TOKEN_LENGTH) {
+                throw new IllegalArgumentException("The id is invalid!");
+            }
+
+            final long sessionId;
+            final int index;
+
+            try {
+                sessionId = UnsignedBase512.parseLong(id, CODE_LENGTH, CODE_LENGTH + ID_LENGTH);
+                index = (int) UnsignedBase512.parseLong(id, CODE_LENGTH + ID_LENGTH, CODE_LENGTH + TOKEN_LENGTH);
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                throw new IllegalArgumentException("The id is invalid!", e);
+            }
+            if (sessionId == 0L) {
+                return null;
+            }
+
+            final List<Session> evicted = new ArrayList<>();
+            Session session;
+
+            synchronized (sessions) {
+                session = renew ? sessions.get(sessionId) : sessions.remove(sessionId);
+                if (session == null) {
+                    return null;
+                }
+                session.cancelTimeoutThread();
+
+                final DataObject data = session.storage.get(index);
+
+                if (data != null && !data.keys().isEmpty()) {
+                    session = new Session(session, data.toMap());
+                }
+                if (renew) {
+                    session.ttl = Math.min(session.timeout, session.ttl << 1);
+                    session.startTimeoutThread();
+                    // counts as an access, which protects the session from eviction
+                    sessions.put(sessionId, session, 0, evicted::add);
+                }
+            }
+            if (renew) {
+                updateWeight(session, evicted);
+            }
+            evicted.forEach(Session::expire);
+            return session.generation < 0 ? null : session;
+        }
+
+        private boolean isBounded() {
+            return memoryBudget != TinyLfuCache.UNBOUNDED;
+        }
+
+        // weighs a session put with no weight, outside of the lock of the sessions since it serializes the session
+        private void updateWeight(Session session, List<Session> evicted) {
+            if (!isBounded()) {
                 return;
             }
 
-            this.thread = threadpool.schedule(() -> {
-                if (sessions.remove(uuid) != null && hook != null && action != null) {
-                    action.accept(hook, this);
+            final int weight = session.weigh();
+
+            synchronized (sessions) {
+                // the session may have been replaced, removed or reweighed by a budget change in the meantime
+                if (isBounded() && sessions.get(session.id) == session) {
+                    sessions.setWeight(session.id, weight, evicted::add);
+                }
+            }
+        }
+
+        // must be called while holding the lock of the sessions, once the budget has been changed
+        private void reweigh(boolean bounded) {
+            final List<Session> live = new ArrayList<>(sessions.size());
+
+            sessions.forEachValue(live::add);
+            for (Session session : live) {
+                synchronized (session.storage) {
+                    session.storage.weight = 0L;
+                    if (bounded) {
+                        for (DataObject snapshot : session.storage.snapshots) {
+                            session.storage.weight += snapshot.toJson().length;
+                        }
+                    }
                 }
-            }, timeout, unit);
-        } else {
-            this.thread = null;
+                sessions.setWeight(session.id, bounded ? session.weigh() : 0, evicted -> {});
+            }
+        }
+    }
+
+    /**
+     * The snapshots of a session, shared by every instance derived from it. The snapshot index {@code n} is stored at
+     * {@code n - 1}.
+     */
+    private static final class Storage {
+
+        private final List<DataObject> snapshots = new ArrayList<>();
+        private long weight;
+
+        /* Methods */
+
+        private synchronized DataObject get(int index) {
+            return index != 0 && index <= snapshots.size() ? snapshots.get(index - 1) : null;
         }
     }
 }
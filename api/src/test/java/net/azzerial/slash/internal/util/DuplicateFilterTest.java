@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.internal.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuplicateFilterTest {
+
+    private static final int CAPACITY = 16;
+    private static final long WINDOW = 500L;
+
+    @Test
+    void rejectsKeyStoredPastExpiredSlot() throws InterruptedException {
+        final DuplicateFilter filter = new DuplicateFilter(CAPACITY, WINDOW, TimeUnit.MILLISECONDS);
+        final long first = 1L;
+        final long second = collidingKey(first);
+
+        assertTrue(filter.accept(first));
+        Thread.sleep(WINDOW * 7 / 10);
+        // the first key is still alive, so the second one is stored in the next probed slot
+        assertTrue(filter.accept(second));
+        Thread.sleep(WINDOW / 2);
+        // the first key has expired, the second one has not
+        assertFalse(filter.accept(second));
+        assertTrue(filter.accept(first));
+    }
+
+    @Test
+    void acceptsKeysOnceWithinWindow() {
+        final DuplicateFilter filter = new DuplicateFilter(CAPACITY, 1L, TimeUnit.HOURS);
+
+        for (long key = 1L; key != CAPACITY / 2; key++) {
+            assertTrue(filter.accept(key));
+            assertFalse(filter.accept(key));
+        }
+    }
+
+    /* Internal */
+
+    // a key probing from the same slot as the given one, with the mask of the table of the filter
+    private static long collidingKey(long key) {
+        final int mask = Integer.highestOneBit((CAPACITY - 1) << 1) - 1;
+        final int start = spread(key) & mask;
+
+        for (long other = key + 1; ; other++) {
+            if ((spread(other) & mask) == start) {
+                return other;
+            }
+        }
+    }
+
+    private static int spread(long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
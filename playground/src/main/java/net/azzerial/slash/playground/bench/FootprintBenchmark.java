@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.playground.bench;
+
+import net.azzerial.slash.Footprint;
+import net.azzerial.slash.SlashClient;
+import net.azzerial.slash.SlashClientBuilder;
+import net.azzerial.slash.SlashCommand;
+import net.azzerial.slash.util.Session;
+import net.dv8tion.jda.api.JDA;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills a {@link SlashClient} with per-guild command ids and live sessions, then compares its
+ * {@link SlashClient#getFootprint() estimated footprint} with the growth of the used heap.
+ *
+ * <p>Every bench command is given an id in each of the {@code guilds} simulated guilds, and one in {@code
+ * snapshotEvery} of the {@code sessions} sessions stores a snapshot. Guild ids and session data are derived from the
+ * loop indices, so two runs retain the same structures. Run with a heap large enough for the sessions, e.g.
+ * {@code -Xmx2g}.</p>
+ *
+ * <p>Usage: {@code FootprintBenchmark [guilds=100000] [sessions=500000] [snapshotEvery=4]}</p>
+ */
+public final class FootprintBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(FootprintBenchmark.class);
+
+    /* Methods */
+
+    public static void main(String[] args) throws Exception {
+        final int guilds = arg(args, 0, 100_000);
+        final int sessions = arg(args, 1, 500_000);
+        final int snapshotEvery = arg(args, 2, 4);
+
+        logger.info("guilds={} sessions={} snapshotEvery={}", guilds, sessions, snapshotEvery);
+        try (StubDiscordServer server = StubDiscordServer.start()) {
+            final JDA jda = server.createJDA(0);
+
+            try {
+                final SlashClient client = SlashClientBuilder.create(jda)
+                    .addCommands(
+                        new StartupBenchmark.BenchCommand0(), new StartupBenchmark.BenchCommand1(),
+                        new StartupBenchmark.BenchCommand2(), new StartupBenchmark.BenchCommand3()
+                    )
+                    .build();
+                final long baseline = usedMemory();
+
+                for (int i = 0; i != 4; i++) {
+                    final SlashCommand command = client.getCommand("bench-" + i);
+
+                    for (long guild = 0; guild != guilds; guild++) {
+                        command.putCommand(StubDiscordServer.FIRST_GUILD_ID + guild, StubDiscordServer.FIRST_GUILD_ID + guilds * (i + 1L) + guild);
+                    }
+                }
+                for (int i = 0; i != sessions; i++) {
+                    final int page = i % 10;
+                    final Session session = Session.create(1L, TimeUnit.HOURS)
+                        .put("user", StubDiscordServer.FIRST_GUILD_ID + i)
+                        .put("page", page);
+
+                    if (snapshotEvery != 0 && i % snapshotEvery == 0) {
+                        session.store(data -> data.put("page", page + 1));
+                    }
+                }
+
+                final long used = usedMemory() - baseline;
+                final Footprint footprint = client.getFootprint();
+
+                logger.info("estimated footprint:\n{}", footprint);
+                logger.info(
+                    "heap growth={} bytes, estimated={} bytes ({}%)",
+                    used, footprint.getBytes(), used == 0 ? 0 : footprint.getBytes() * 100 / used
+                );
+            } finally {
+                StubDiscordServer.shutdown(jda);
+            }
+        }
+    }
+
+    /* Internal */
+
+    private static long usedMemory() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i != 3; i++) {
+            System.gc();
+            Thread.sleep(100L);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static int arg(String[] args, int index, int def) {
+        return args.length > index ? Integer.parseInt(args[index]) : def;
+    }
+}
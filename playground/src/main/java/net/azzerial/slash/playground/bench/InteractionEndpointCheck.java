@@ -0,0 +1,139 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.playground.bench;
+
+import net.azzerial.slash.InteractionServer;
+import net.dv8tion.jda.api.JDA;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+
+/**
+ * Checks an {@link InteractionServer} locally with payloads signed by a freshly generated Ed25519 key pair, the way
+ * Discord signs them: a signed ping must be answered with a pong, and tampered or unsigned requests must be rejected.
+ *
+ * <p>Requires Java 15 or later. Dispatching actual interactions requires a JDA instance connected to the gateway, which
+ * this check does not use.</p>
+ */
+public final class InteractionEndpointCheck {
+
+    private static final Logger logger = LoggerFactory.getLogger(InteractionEndpointCheck.class);
+    private static final String PING = "{\"id\":\"1\",\"application_id\":\"1\",\"type\":1,\"token\":\"t\",\"version\":1}";
+
+    /* Methods */
+
+    public static void main(String[] args) throws Exception {
+        final KeyPair keys = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+        final byte[] encoded = keys.getPublic().getEncoded();
+        final StringBuilder publicKey = new StringBuilder();
+
+        // the raw key is the last 32 bytes of its X.509 encoding
+        for (int i = encoded.length - 32; i != encoded.length; i++) {
+            publicKey.append(String.format("%02x", encoded[i]));
+        }
+
+        int failures = 0;
+
+        try (StubDiscordServer stub = StubDiscordServer.start()) {
+            final JDA jda = stub.createJDA(0);
+
+            try (InteractionServer server = InteractionServer.create(jda, publicKey.toString())
+                .start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+                final URL url = new URL("http", "127.0.0.1", server.getAddress().getPort(), InteractionServer.DEFAULT_PATH);
+                final String timestamp = Long.toString(System.currentTimeMillis() / 1000L);
+                final String signature = sign(keys, timestamp, PING);
+
+                failures += expect("signed ping", post(url, PING, signature, timestamp), "200 {\"type\":1}");
+                failures += expect("tampered ping", post(url, PING.replace("\"t\"", "\"u\""), signature, timestamp), "401");
+                failures += expect("stale signature", post(url, PING, signature, timestamp + "0"), "401");
+                failures += expect("unsigned ping", post(url, PING, null, null), "401");
+            } finally {
+                StubDiscordServer.shutdown(jda);
+            }
+        }
+        if (failures != 0) {
+            System.exit(1);
+        }
+    }
+
+    /* Internal */
+
+    private static String sign(KeyPair keys, String timestamp, String body) throws GeneralSecurityException {
+        final Signature signature = Signature.getInstance("Ed25519");
+        final StringBuilder sb = new StringBuilder();
+
+        signature.initSign(keys.getPrivate());
+        signature.update((timestamp + body).getBytes(StandardCharsets.UTF_8));
+        for (byte b : signature.sign()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static String post(URL url, String body, String signature, String timestamp) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        if (signature != null) {
+            connection.setRequestProperty("X-Signature-Ed25519", signature);
+            connection.setRequestProperty("X-Signature-Timestamp", timestamp);
+        }
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        final int code = connection.getResponseCode();
+
+        if (code != 200) {
+            return Integer.toString(code);
+        }
+        try (InputStream in = connection.getInputStream()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buf = new byte[1024];
+            int n;
+
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return code + " " + new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int expect(String name, String actual, String expected) {
+        if (expected.equals(actual)) {
+            logger.info("{}: {}", name, actual);
+            return 0;
+        }
+        logger.error("{}: expected {} but got {}", name, expected, actual);
+        return 1;
+    }
+}
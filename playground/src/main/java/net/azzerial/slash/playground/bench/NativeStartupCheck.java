@@ -0,0 +1,138 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.playground.bench;
+
+import net.azzerial.slash.SlashCommand;
+import net.azzerial.slash.internal.ClientContext;
+import net.azzerial.slash.internal.CommandRegistry;
+import net.azzerial.slash.internal.ComponentCallback;
+import net.azzerial.slash.internal.ComponentRegistry;
+import net.azzerial.slash.internal.Dispatcher;
+import net.azzerial.slash.internal.HandlerWatchdog;
+import net.azzerial.slash.playground.commands.PingCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compares the startup time and the memory of the native image of the playground with the JVM build.
+ *
+ * <p>Run without arguments, registers the playground and bench commands (which reflects over their annotated methods,
+ * as on a real startup), resolves a component id and dry-runs every handler, then prints a {@code ready} line with its
+ * peak resident set size. Nothing connects to Discord, so the image needs no metadata for JDA's networking. Run with
+ * the path of the native executable, launches it and the JVM build {@code runs} times each and reports the median
+ * time to the {@code ready} line and the median peak RSS (read from {@code /proc}, so Linux only).</p>
+ *
+ * <p>Usage: {@code NativeStartupCheck [executable] [runs=5]}</p>
+ */
+public final class NativeStartupCheck {
+
+    private static final Logger logger = LoggerFactory.getLogger(NativeStartupCheck.class);
+    private static final String READY = "ready rss-kb=";
+
+    /* Methods */
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            start();
+            return;
+        }
+
+        final int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        final List<String> jvm = Arrays.asList(java, "-cp", System.getProperty("java.class.path"), NativeStartupCheck.class.getName());
+
+        report("jvm", jvm, runs);
+        report("native", Collections.singletonList(args[0]), runs);
+    }
+
+    /* Internal */
+
+    private static void start() throws IOException {
+        final ClientContext context = ClientContext.create();
+        final ComponentRegistry components = context.getComponentRegistry();
+        final CommandRegistry registry = new CommandRegistry(null, components);
+        final Dispatcher dispatcher = new Dispatcher(context, new HandlerWatchdog(1_000L, report -> {}));
+
+        registry.registerCommand(new PingCommand());
+        registry.registerCommand(new StartupBenchmark.BenchCommand0());
+        registry.registerCommand(new StartupBenchmark.BenchCommand1());
+        registry.registerCommand(new StartupBenchmark.BenchCommand2());
+        registry.registerCommand(new StartupBenchmark.BenchCommand3());
+        for (SlashCommand command : registry.getCommands()) {
+            for (String path : command.getHandlers().keySet()) {
+                final Method method = command.getHandlers().get(path);
+
+                dispatcher.dryRun(path, command.getObjectInstance(), method);
+            }
+        }
+
+        final ComponentCallback callback = components.getComponentCallback(components.formatComponentId("ping.refresh", null));
+
+        if (callback == null) {
+            throw new IllegalStateException("The ping.refresh button was not registered");
+        }
+        dispatcher.dryRun(callback.getTag(), callback.getObjectInstance(), callback.getMethod());
+        System.out.println(READY + peakRss());
+    }
+
+    private static void report(String name, List<String> command, int runs) throws IOException, InterruptedException {
+        final long[] times = new long[runs];
+        final long[] rss = new long[runs];
+
+        for (int run = 0; run != runs; run++) {
+            final long start = System.nanoTime();
+            final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String line;
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                while ((line = reader.readLine()) != null && !line.startsWith(READY)) {
+                    logger.debug("[{}] {}", name, line);
+                }
+            }
+            times[run] = System.nanoTime() - start;
+            if (process.waitFor() != 0 || line == null) {
+                throw new IllegalStateException("The " + name + " build exited with " + process.exitValue());
+            }
+            rss[run] = Long.parseLong(line.substring(READY.length()).trim());
+        }
+        Arrays.sort(times);
+        Arrays.sort(rss);
+        logger.info("{}: startup={} ms peak-rss={} MiB (median of {} runs)", name, times[runs / 2] / 1_000_000L, rss[runs / 2] / 1024L, runs);
+    }
+
+    private static long peakRss() throws IOException {
+        for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.UTF_8)) {
+            if (line.startsWith("VmHWM:")) {
+                return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+            }
+        }
+        return -1L;
+    }
+}
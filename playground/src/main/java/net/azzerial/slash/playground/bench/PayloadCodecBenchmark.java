@@ -0,0 +1,137 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.playground.bench;
+
+import net.azzerial.slash.annotations.Payload;
+import net.azzerial.slash.util.Buffer;
+import net.azzerial.slash.util.PayloadCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares a {@link PayloadCodec} with the equivalent hand-written {@link Buffer.Writer} and {@link Buffer.Reader}
+ * calls, on a typical paging payload.
+ *
+ * <p>Each round runs every variant for a fixed number of operations after a warm-up, and reports the average time
+ * per operation. The results are folded into a checksum so that the JIT cannot drop the work.</p>
+ *
+ * <p>Usage: {@code PayloadCodecBenchmark [operations=1000000] [rounds=5]}</p>
+ */
+public final class PayloadCodecBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayloadCodecBenchmark.class);
+    // the code of an unregistered tag, the readers skip it
+    private static final String CODE = "0   ";
+
+    /* Methods */
+
+    public static void main(String[] args) {
+        final int operations = arg(args, 0, 1_000_000);
+        final int rounds = arg(args, 1, 5);
+        final PayloadCodec<Page> codec = PayloadCodec.of(Page.class);
+        final Page page = new Page();
+
+        page.owner = 264445053596991498L;
+        page.page = 42;
+        page.pageSize = 20;
+        page.ascending = true;
+        page.query = "roles";
+
+        final String id = CODE + codec.encode(page);
+
+        logger.info("operations={} rounds={} payload=\"{}\"", operations, rounds, id);
+        for (int round = 0; round <= rounds; round++) {
+            long checksum = 0L;
+            long start = System.nanoTime();
+
+            for (int i = 0; i != operations; i++) {
+                checksum += Buffer.Writer.create()
+                    .write(18, page.owner)
+                    .write(4, page.page, 36)
+                    .write(2, page.pageSize)
+                    .write(page.ascending)
+                    .write(16, page.query)
+                    .toString()
+                    .length();
+            }
+
+            final long writer = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i != operations; i++) {
+                checksum += codec.encode(page).length();
+            }
+
+            final long encode = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i != operations; i++) {
+                final Buffer.Reader reader = Buffer.Reader.of(id);
+
+                checksum += reader.read(18).asLong();
+                checksum += reader.read(4).asInt(36);
+                checksum += reader.read(2).asInt();
+                checksum += reader.read(1).asBoolean() ? 1 : 0;
+                checksum += reader.read(16).asString().length();
+            }
+
+            final long reader = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i != operations; i++) {
+                final Page decoded = codec.decode(id);
+
+                checksum += decoded.owner + decoded.page + decoded.pageSize + (decoded.ascending ? 1 : 0) + decoded.query.length();
+            }
+
+            final long decode = System.nanoTime() - start;
+
+            if (round == 0) {
+                // warm-up
+                continue;
+            }
+            logger.info(
+                "round {}: writer={}ns codec.encode={}ns reader={}ns codec.decode={}ns (checksum {})",
+                round,
+                writer / operations, encode / operations, reader / operations, decode / operations,
+                checksum
+            );
+        }
+    }
+
+    /* Internal */
+
+    private static int arg(String[] args, int index, int def) {
+        return args.length > index ? Integer.parseInt(args[index]) : def;
+    }
+
+    /* Nested Classes */
+
+    public static final class Page {
+
+        @Payload.Field(order = 0, width = 18)
+        private long owner;
+        @Payload.Field(order = 1, width = 4, radix = 36)
+        private int page;
+        @Payload.Field(order = 2, width = 2)
+        private int pageSize;
+        @Payload.Field(order = 3, width = 1)
+        private boolean ascending;
+        @Payload.Field(order = 4, width = 16)
+        private String query;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.playground.bench;
+
+import net.azzerial.slash.SlashClient;
+import net.azzerial.slash.SlashClientBuilder;
+import net.azzerial.slash.SlashCommand;
+import net.azzerial.slash.annotations.Slash;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the startup command sync of a {@link SlashClient} against a {@link StubDiscordServer}.
+ *
+ * <p>Each guild (and the global scope) is seeded with {@code commands} remote commands, of which the first ones match
+ * the local bench commands. A run measures {@link SlashClientBuilder#build()}, then upserts every local command in
+ * every guild, and reports the time and the number of REST calls of both phases.</p>
+ *
+ * <p>Usage: {@code StartupBenchmark [commands=50] [guilds=100] [latencyMs=20] [rateLimitEvery=0] [runs=3]}</p>
+ */
+public final class StartupBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupBenchmark.class);
+    private static final Object[] COMMANDS = {
+        new BenchCommand0(), new BenchCommand1(), new BenchCommand2(), new BenchCommand3()
+    };
+
+    /* Methods */
+
+    public static void main(String[] args) throws Exception {
+        final int commands = arg(args, 0, 50);
+        final int guilds = arg(args, 1, 100);
+        final int latency = arg(args, 2, 20);
+        final int rateLimitEvery = arg(args, 3, 0);
+        final int runs = arg(args, 4, 3);
+
+        logger.info("commands={} guilds={} latency={}ms rateLimitEvery={} runs={}", commands, guilds, latency, rateLimitEvery, runs);
+        for (int run = 1; run <= runs; run++) {
+            run(run, commands, guilds, latency, rateLimitEvery);
+        }
+    }
+
+    /* Internal */
+
+    private static void run(int run, int commands, int guilds, int latency, int rateLimitEvery) throws Exception {
+        try (StubDiscordServer server = StubDiscordServer.start()) {
+            server.seed(0L, "bench-", commands);
+            for (int i = 0; i != guilds; i++) {
+                server.seed(StubDiscordServer.FIRST_GUILD_ID + i, "bench-", commands);
+            }
+            server.setLatency(latency, TimeUnit.MILLISECONDS).setRateLimitEvery(rateLimitEvery);
+
+            final JDA jda = server.createJDA(guilds);
+
+            try {
+                server.resetCounters();
+
+                final long buildStart = System.nanoTime();
+                final SlashClient client = SlashClientBuilder.create(jda)
+                    .addCommands(COMMANDS)
+                    .build();
+                final long buildTime = System.nanoTime() - buildStart;
+                final long buildRequests = server.getRequests();
+                final long buildRateLimited = server.getRateLimited();
+                final long upsertStart = System.nanoTime();
+
+                for (Object command : COMMANDS) {
+                    final SlashCommand slashCommand = client.getCommand(command.getClass().getAnnotation(Slash.Tag.class).value());
+
+                    for (Guild guild : jda.getGuilds()) {
+                        slashCommand.upsertGuild(guild);
+                    }
+                }
+
+                final boolean completed = server.awaitRequests(
+                    buildRequests - buildRateLimited + (long) COMMANDS.length * guilds,
+                    5L, TimeUnit.MINUTES
+                );
+                final long upsertTime = System.nanoTime() - upsertStart;
+
+                logger.info(
+                    "run {}: build={}ms ({} calls, {} rate limited) upserts={}ms ({} calls){} calls={}",
+                    run,
+                    TimeUnit.NANOSECONDS.toMillis(buildTime), buildRequests, buildRateLimited,
+                    TimeUnit.NANOSECONDS.toMillis(upsertTime), server.getRequests() - buildRequests,
+                    completed ? "" : " [timed out]",
+                    server.getCalls()
+                );
+            } finally {
+                StubDiscordServer.shutdown(jda);
+            }
+        }
+    }
+
+    private static int arg(String[] args, int index, int def) {
+        return args.length > index ? Integer.parseInt(args[index]) : def;
+    }
+
+    /* Nested Classes */
+
+    @Slash.Tag("bench-0")
+    @Slash.Command(name = "bench-0", description = "Bench command")
+    public static final class BenchCommand0 {
+
+        @Slash.Handler
+        public void onCommand(SlashCommandEvent event) {}
+    }
+
+    @Slash.Tag("bench-1")
+    @Slash.Command(name = "bench-1", description = "Bench command")
+    public static final class BenchCommand1 {
+
+        @Slash.Handler
+        public void onCommand(SlashCommandEvent event) {}
+    }
+
+    @Slash.Tag("bench-2")
+    @Slash.Command(name = "bench-2", description = "Bench command")
+    public static final class BenchCommand2 {
+
+        @Slash.Handler
+        public void onCommand(SlashCommandEvent event) {}
+    }
+
+    @Slash.Tag("bench-3")
+    @Slash.Command(name = "bench-3", description = "Bench command")
+    public static final class BenchCommand3 {
+
+        @Slash.Handler
+        public void onCommand(SlashCommandEvent event) {}
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.playground.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+import net.dv8tion.jda.internal.JDAImpl;
+import net.dv8tion.jda.internal.entities.GuildImpl;
+import net.dv8tion.jda.internal.entities.SelfUserImpl;
+import net.dv8tion.jda.internal.utils.UnlockHook;
+import net.dv8tion.jda.internal.utils.cache.SnowflakeCacheViewImpl;
+import net.dv8tion.jda.internal.utils.config.AuthorizationConfig;
+import net.dv8tion.jda.internal.utils.config.MetaConfig;
+import net.dv8tion.jda.internal.utils.config.SessionConfig;
+import net.dv8tion.jda.internal.utils.config.ThreadingConfig;
+import net.dv8tion.jda.internal.utils.config.flags.ConfigFlag;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An in-process stand-in for the application commands endpoints of the Discord REST API.
+ *
+ * <p>JDA instances created by {@link #createJDA(int)} have their requests rewritten to this server, and are marked as
+ * connected without ever opening a gateway connection. The server can delay its responses and answer with rate limits
+ * to reproduce the conditions of a real startup.</p>
+ */
+public final class StubDiscordServer implements AutoCloseable {
+
+    public static final long APPLICATION_ID = 100_000_000_000_000_000L;
+    public static final long FIRST_GUILD_ID = 200_000_000_000_000_000L;
+
+    private static final Pattern ROUTE = Pattern.compile(
+        "/api/v\\d+/applications/(\\d+)(?:/guilds/(\\d+))?/commands(?:/(permissions|\\d+))?(/permissions)?"
+    );
+
+    private final HttpServer server;
+    private final ExecutorService threadpool = Executors.newCachedThreadPool(r -> {
+        final Thread thread = new Thread(r, "StubDiscordServer");
+
+        thread.setDaemon(true);
+        return thread;
+    });
+    // scope (0 for the global commands) -> command id -> command
+    private final Map<Long, Map<Long, DataObject>> commands = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong(300_000_000_000_000_000L);
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final Map<String, AtomicLong> calls = new ConcurrentHashMap<>();
+    private volatile long latency = 0L;
+    private volatile int rateLimitEvery = 0;
+
+    /* Constructors */
+
+    private StubDiscordServer(HttpServer server) {
+        this.server = server;
+        server.setExecutor(threadpool);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /* Getters & Setters */
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /** Delays every response by the given latency. */
+    public StubDiscordServer setLatency(long latency, TimeUnit unit) {
+        this.latency = unit.toMillis(latency);
+        return this;
+    }
+
+    /** Answers every n-th request with a 429, or never if {@code 0}. */
+    public StubDiscordServer setRateLimitEvery(int n) {
+        this.rateLimitEvery = n;
+        return this;
+    }
+
+    /** The number of requests received, including the rate limited ones. */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    /** The number of requests received per method, excluding the rate limited ones. */
+    public Map<String, Long> getCalls() {
+        final Map<String, Long> map = new TreeMap<>();
+
+        calls.forEach((method, count) -> map.put(method, count.get()));
+        return map;
+    }
+
+    public void resetCounters() {
+        requests.set(0L);
+        rateLimited.set(0L);
+        calls.clear();
+    }
+
+    /* Methods */
+
+    public static StubDiscordServer start() throws IOException {
+        return new StubDiscordServer(HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0));
+    }
+
+    /**
+     * Registers commands named {@code <prefix>0} to {@code <prefix>(count - 1)} in the given scope, {@code 0} being the
+     * global one.
+     */
+    public void seed(long scope, String prefix, int count) {
+        for (int i = 0; i != count; i++) {
+            final DataObject command = DataObject.empty()
+                .put("name", prefix + i)
+                .put("description", "Seeded command")
+                .put("options", DataArray.empty());
+
+            put(scope, command);
+        }
+    }
+
+    /**
+     * Waits until the server has received the given number of requests, excluding the rate limited ones.
+     */
+    public boolean awaitRequests(long count, long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        while (requests.get() - rateLimited.get() < count) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(1L);
+        }
+        return true;
+    }
+
+    /**
+     * Returns an interceptor redirecting the requests to this server.
+     */
+    public Interceptor interceptor() {
+        return chain -> {
+            final HttpUrl url = chain.request().url().newBuilder()
+                .scheme("http")
+                .host(InetAddress.getLoopbackAddress().getHostAddress())
+                .port(getPort())
+                .build();
+            return chain.proceed(chain.request().newBuilder().url(url).build());
+        };
+    }
+
+    /**
+     * Creates a JDA instance bound to this server, which is already {@link JDA.Status#CONNECTED} and has the given
+     * number of guilds in cache. It never connects to the gateway, {@link #shutdown(JDA)} releases its threads.
+     */
+    public JDA createJDA(int guilds) {
+        final OkHttpClient http = new OkHttpClient.Builder()
+            .addInterceptor(interceptor())
+            .build();
+        final EnumSet<ConfigFlag> flags = ConfigFlag.getDefault();
+        final ThreadingConfig threading = ThreadingConfig.getDefault();
+        final JDAImpl jda = new JDAImpl(
+            new AuthorizationConfig("stub"),
+            new SessionConfig(null, http, null, null, flags, 900, 250),
+            threading,
+            MetaConfig.getDefault(flags)
+        );
+        final SelfUserImpl self = new SelfUserImpl(APPLICATION_ID, jda);
+        final SnowflakeCacheViewImpl<Guild> view = jda.getGuildsView();
+
+        threading.init(jda::getIdentifierString);
+        jda.getRequester().getRateLimiter().init();
+        self.setApplicationId(APPLICATION_ID);
+        jda.setSelfUser(self);
+
+        final UnlockHook hook = view.writeLock();
+
+        try {
+            for (int i = 0; i != guilds; i++) {
+                view.getMap().put(FIRST_GUILD_ID + i, new GuildImpl(jda, FIRST_GUILD_ID + i));
+            }
+        } finally {
+            hook.close();
+        }
+        jda.setStatus(JDA.Status.CONNECTED);
+        return jda;
+    }
+
+    public static void shutdown(JDA jda) {
+        final JDAImpl impl = (JDAImpl) jda;
+
+        impl.getRequester().shutdown();
+        impl.getThreadingConfig().shutdownNow();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        threadpool.shutdownNow();
+    }
+
+    /* Internal */
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final long n = requests.incrementAndGet();
+
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            if (rateLimitEvery > 0 && n % rateLimitEvery == 0) {
+                rateLimited.incrementAndGet();
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                exchange.getResponseHeaders().add("X-RateLimit-Scope", "user");
+                respond(exchange, 429, DataObject.empty()
+                    .put("message", "You are being rate limited.")
+                    .put("retry_after", 0.05)
+                    .put("global", false)
+                    .toJson());
+                return;
+            }
+
+            final String method = exchange.getRequestMethod();
+            final Matcher matcher = ROUTE.matcher(exchange.getRequestURI().getPath());
+
+            calls.computeIfAbsent(method, k -> new AtomicLong()).incrementAndGet();
+            if (!matcher.matches()) {
+                respond(exchange, 404, DataObject.empty().put("message", "404: Not Found").put("code", 0).toJson());
+                return;
+            }
+
+            final long scope = matcher.group(2) == null ? 0L : Long.parseLong(matcher.group(2));
+            final String target = matcher.group(3);
+
+            if ("permissions".equals(target) || matcher.group(4) != null) {
+                handlePermissions(exchange, scope, target);
+            } else if (target == null) {
+                handleCommands(exchange, scope);
+            } else {
+                handleCommand(exchange, scope, Long.parseLong(target));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleCommands(HttpExchange exchange, long scope) throws IOException {
+        switch (exchange.getRequestMethod()) {
+        case "GET":
+            respond(exchange, 200, DataArray.fromCollection(scope(scope).values()).toJson());
+            break;
+        case "POST":
+            respond(exchange, 200, put(scope, DataObject.fromJson(exchange.getRequestBody())).toJson());
+            break;
+        case "PUT":
+            final DataArray array = DataArray.fromJson(exchange.getRequestBody());
+            final List<DataObject> created = new ArrayList<>();
+
+            scope(scope).clear();
+            for (int i = 0; i != array.length(); i++) {
+                created.add(put(scope, array.getObject(i)));
+            }
+            respond(exchange, 200, DataArray.fromCollection(created).toJson());
+            break;
+        default:
+            respond(exchange, 405, DataObject.empty().put("message", "405: Method Not Allowed").toJson());
+        }
+    }
+
+    private void handleCommand(HttpExchange exchange, long scope, long id) throws IOException {
+        final DataObject command = scope(scope).get(id);
+
+        if (command == null) {
+            respond(exchange, 404, DataObject.empty().put("message", "Unknown application command").put("code", 10063).toJson());
+            return;
+        }
+        switch (exchange.getRequestMethod()) {
+        case "GET":
+            respond(exchange, 200, command.toJson());
+            break;
+        case "PATCH":
+            final DataObject patch = DataObject.fromJson(exchange.getRequestBody());
+
+            patch.toMap().forEach(command::put);
+            respond(exchange, 200, command.toJson());
+            break;
+        case "DELETE":
+            scope(scope).remove(id);
+            exchange.sendResponseHeaders(204, -1);
+            break;
+        default:
+            respond(exchange, 405, DataObject.empty().put("message", "405: Method Not Allowed").toJson());
+        }
+    }
+
+    private void handlePermissions(HttpExchange exchange, long scope, String target) throws IOException {
+        if ("permissions".equals(target)) {
+            respond(exchange, 200, DataArray.empty().toJson());
+            return;
+        }
+
+        final DataArray permissions = "PUT".equals(exchange.getRequestMethod()) ?
+            DataObject.fromJson(exchange.getRequestBody()).getArray("permissions") :
+            DataArray.empty();
+
+        respond(exchange, 200, DataObject.empty()
+            .put("id", target)
+            .put("application_id", Long.toUnsignedString(APPLICATION_ID))
+            .put("guild_id", Long.toUnsignedString(scope))
+            .put("permissions", permissions)
+            .toJson());
+    }
+
+    private Map<Long, DataObject> scope(long scope) {
+        return commands.computeIfAbsent(scope, k -> new ConcurrentHashMap<>());
+    }
+
+    private DataObject put(long scope, DataObject command) {
+        final Map<Long, DataObject> commands = scope(scope);
+        final String name = command.getString("name");
+        // an upsert overwrites the command of the same name, as Discord does
+        final Optional<DataObject> existing = commands.values().stream()
+            .filter(cmd -> cmd.getString("name").equals(name))
+            .findFirst();
+        final long id = existing.map(cmd -> cmd.getLong("id")).orElseGet(ids::incrementAndGet);
+
+        command.put("id", Long.toUnsignedString(id));
+        command.put("application_id", Long.toUnsignedString(APPLICATION_ID));
+        command.put("version", Long.toUnsignedString(ids.incrementAndGet()));
+        if (scope != 0L) {
+            command.put("guild_id", Long.toUnsignedString(scope));
+        }
+        if (!command.hasKey("options")) {
+            command.put("options", DataArray.empty());
+        }
+        if (!command.hasKey("default_permission")) {
+            command.put("default_permission", true);
+        }
+        commands.put(id, command);
+        return command;
+    }
+
+    private static void respond(HttpExchange exchange, int code, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
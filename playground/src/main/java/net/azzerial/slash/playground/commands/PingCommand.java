@@ -18,6 +18,7 @@ package net.azzerial.slash.playground.commands;
 
 import net.azzerial.slash.annotations.Slash;
 import net.azzerial.slash.components.SlashButton;
+import net.azzerial.slash.util.EditCoalescer;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.events.interaction.ButtonClickEvent;
@@ -31,6 +32,8 @@ import net.dv8tion.jda.api.events.interaction.SlashCommandEvent;
 public final class PingCommand {
 
     private final MessageEmbed initialMessage = buildPingMessage("...");
+    private final SlashButton refreshButton = SlashButton.primary("ping.refresh", "Refresh").freeze();
+    private final EditCoalescer coalescer = EditCoalescer.create();
 
     /* Methods */
 
@@ -40,9 +43,7 @@ public final class PingCommand {
 
         event.deferReply(true)
             .addEmbeds(initialMessage)
-            .addActionRow(
-                SlashButton.primary("ping.refresh", "Refresh")
-            )
+            .addActionRow(refreshButton)
             .flatMap(v -> {
                 final long latency = System.currentTimeMillis() - time;
                 final String ms = Long.toUnsignedString(latency);
@@ -57,13 +58,15 @@ public final class PingCommand {
         final long time = System.currentTimeMillis();
 
         event.deferEdit()
-            .flatMap(v -> {
-                final long latency = System.currentTimeMillis() - time;
-                final String ms = Long.toUnsignedString(latency);
-                final MessageEmbed message = buildPingMessage(ms);
-                return event.getHook().editOriginalEmbeds(message);
-            })
-            .queue();
+            .queue(v ->
+                // only the latest click of a burst edits the message
+                coalescer.submit(event, () -> {
+                    final long latency = System.currentTimeMillis() - time;
+                    final String ms = Long.toUnsignedString(latency);
+                    final MessageEmbed message = buildPingMessage(ms);
+                    return event.getHook().editOriginalEmbeds(message);
+                })
+            );
     }
 
     /* Internal */
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2021 Robin Mercier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.azzerial.slash.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Generates the GraalVM native-image reflection metadata of the annotated classes of an application.
+ *
+ * <p>The commands and components are registered by reflection over their declared methods, and the payloads are
+ * compiled by reflection over their declared fields and constructor. Those classes are listed in a
+ * {@code reflect-config.json}, written to {@code META-INF/native-image/<id>/} in the class output, where the
+ * {@code <id>} is given by the {@value #ID_OPTION} option ({@value #DEFAULT_ID} by default).</p>
+ */
+public final class ReflectionConfigProcessor extends AbstractProcessor {
+
+    public static final String ID_OPTION = "slash.nativeImageId";
+    public static final String DEFAULT_ID = "slash-commands-generated";
+
+    private static final String SLASH = "net.azzerial.slash.annotations.Slash";
+    private static final String PAYLOAD = "net.azzerial.slash.annotations.Payload";
+
+    // sorted so that the generated file is stable from a build to another
+    private final Map<String, Entry> entries = new TreeMap<>();
+    private final List<Element> origins = new ArrayList<>();
+
+    /* Getters & Setters */
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new HashSet<>(Arrays.asList(
+            SLASH + ".Command",
+            SLASH + ".Handler",
+            SLASH + ".Button",
+            SLASH + ".SelectionMenu",
+            PAYLOAD + ".Field"
+        ));
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(ID_OPTION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /* Methods */
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            final boolean payload = annotation.getQualifiedName().contentEquals(PAYLOAD + ".Field");
+
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                final TypeElement type = element.getKind().isClass() || element.getKind().isInterface() ?
+                    (TypeElement) element :
+                    (TypeElement) element.getEnclosingElement();
+                final String name = processingEnv.getElementUtils().getBinaryName(type).toString();
+                final Entry entry = entries.computeIfAbsent(name, Entry::new);
+
+                if (payload) {
+                    entry.fields = true;
+                } else {
+                    entry.methods = true;
+                }
+                if (!origins.contains(type)) {
+                    origins.add(type);
+                }
+            }
+        }
+        if (roundEnv.processingOver() && !entries.isEmpty()) {
+            write();
+        }
+        return false;
+    }
+
+    /* Internal */
+
+    private void write() {
+        final String id = processingEnv.getOptions().getOrDefault(ID_OPTION, DEFAULT_ID);
+
+        try {
+            final FileObject file = processingEnv.getFiler().createResource(
+                StandardLocation.CLASS_OUTPUT,
+                "",
+                "META-INF/native-image/" + id + "/reflect-config.json",
+                origins.toArray(new Element[0])
+            );
+
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                writer.write(toJson());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write the reflect-config.json: " + e.getMessage());
+        }
+    }
+
+    private String toJson() {
+        final StringBuilder sb = new StringBuilder("[\n");
+        final Iterator<Entry> it = entries.values().iterator();
+
+        while (it.hasNext()) {
+            final Entry entry = it.next();
+
+            sb.append("  {\n    \"name\": \"").append(entry.name).append('"');
+            if (entry.methods) {
+                sb.append(",\n    \"allDeclaredMethods\": true");
+            }
+            if (entry.fields) {
+                sb.append(",\n    \"allDeclaredFields\": true");
+                sb.append(",\n    \"allDeclaredConstructors\": true");
+            }
+            sb.append("\n  }").append(it.hasNext() ? ",\n" : "\n");
+        }
+        return sb.append("]\n").toString();
+    }
+
+    /* Nested Classes */
+
+    private static final class Entry {
+
+        private final String name;
+        private boolean methods = false;
+        private boolean fields = false;
+
+        /* Constructors */
+
+        private Entry(String name) {
+            this.name = name;
+        }
+    }
+}